@@ -0,0 +1,58 @@
+package com.example.usercrud;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+final class BenchmarkDatabase implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> postgres;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+
+    private BenchmarkDatabase(PostgreSQLContainer<?> postgres, String jdbcUrl, String username, String password) {
+        this.postgres = postgres;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+    }
+
+    static BenchmarkDatabase start() {
+        String jdbcUrl = System.getProperty("benchmark.jdbc-url");
+        if (jdbcUrl != null) {
+            return new BenchmarkDatabase(null, jdbcUrl,
+                    System.getProperty("benchmark.jdbc-username", "postgres"),
+                    System.getProperty("benchmark.jdbc-password", "postgres"));
+        }
+        PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+        return new BenchmarkDatabase(postgres, postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+
+    ConfigurableApplicationContext startApplication(String... profiles) {
+        return application(profiles).web(WebApplicationType.NONE).run();
+    }
+
+    ConfigurableApplicationContext startWebApplication(String... profiles) {
+        return application(profiles).properties("server.port=0").run();
+    }
+
+    private SpringApplicationBuilder application(String... profiles) {
+        return new SpringApplicationBuilder(UserCrudApplication.class)
+                .profiles(profiles)
+                .properties(
+                        "spring.datasource.url=" + jdbcUrl,
+                        "spring.datasource.username=" + username,
+                        "spring.datasource.password=" + password,
+                        "logging.level.root=WARN");
+    }
+
+    @Override
+    public void close() {
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+}
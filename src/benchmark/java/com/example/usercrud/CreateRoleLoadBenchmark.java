@@ -0,0 +1,70 @@
+package com.example.usercrud;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+class CreateRoleLoadBenchmark {
+
+    private static final int[] CLIENTS = Arrays.stream(System.getProperty("benchmark.clients", "16,64,256").split(","))
+            .mapToInt(Integer::parseInt)
+            .toArray();
+    private static final Duration DURATION = Duration.parse(System.getProperty("benchmark.duration", "PT30S"));
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+
+    private static BenchmarkDatabase database;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @BeforeAll
+    static void startDatabase() {
+        database = BenchmarkDatabase.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        database.close();
+    }
+
+    @Test
+    void defaultDatasourceVersusProdDatasource() {
+        List<String> rows = new ArrayList<>();
+        rows.addAll(measure("defaults"));
+        rows.addAll(measure("prod", "prod"));
+
+        System.out.println(LoadGenerator.LoadResult.header());
+        rows.forEach(System.out::println);
+    }
+
+    private List<String> measure(String mode, String... profiles) {
+        try (ConfigurableApplicationContext context = database.startWebApplication(profiles)) {
+            context.getBean(RoleRepository.class).deleteAll();
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadGenerator loadGenerator = new LoadGenerator();
+            loadGenerator.run(CLIENTS[0], WARMUP, () -> createRole(port, mode));
+
+            List<String> rows = new ArrayList<>();
+            for (int clients : CLIENTS) {
+                rows.add(loadGenerator.run(clients, DURATION, () -> createRole(port, mode)).row(mode));
+            }
+            return rows;
+        }
+    }
+
+    private HttpRequest createRole(int port, String mode) {
+        String body = "{\"name\":\"" + mode + "-" + sequence.incrementAndGet() + "\"}";
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/roles"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
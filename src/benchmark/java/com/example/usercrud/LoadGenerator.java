@@ -0,0 +1,74 @@
+package com.example.usercrud;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+final class LoadGenerator {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+
+    LoadResult run(int clients, Duration duration, Supplier<HttpRequest> requests) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> {
+                    long[] recorded = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(requests.get(), HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == recorded.length) {
+                            recorded = Arrays.copyOf(recorded, count * 2);
+                        }
+                        recorded[count++] = System.nanoTime() - start;
+                    }
+                    latencies.add(Arrays.copyOf(recorded, count));
+                });
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new LoadResult(clients, all.length, errors.get(), all.length / elapsedSeconds,
+                percentileMillis(all, 0.50), percentileMillis(all, 0.99));
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    record LoadResult(int clients, long requests, long errors, double throughput, double p50Millis, double p99Millis) {
+
+        static String header() {
+            return String.format("%-20s %8s %10s %8s %12s %10s %10s", "mode", "clients", "requests", "errors", "req/s", "p50 ms", "p99 ms");
+        }
+
+        String row(String mode) {
+            return String.format("%-20s %8d %10d %8d %12.1f %10.2f %10.2f", mode, clients, requests, errors, throughput, p50Millis, p99Millis);
+        }
+    }
+}
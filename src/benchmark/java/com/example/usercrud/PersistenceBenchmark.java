@@ -0,0 +1,144 @@
+package com.example.usercrud;
+
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersistenceBenchmark {
+
+    @Param({"10000"})
+    public int users;
+
+    @Param({"100", "1000"})
+    public int pageSize;
+
+    private BenchmarkDatabase database;
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private RoleRepository roleRepository;
+    private UserController userController;
+    private MembershipWriteBehind membershipWriteBehind;
+    private MembershipIndex membershipIndex;
+    private TransactionTemplate transactionTemplate;
+    private EntityManager entityManager;
+    private Long userId;
+    private Long roleId;
+    private Long middleUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        context = database.startApplication();
+        userRepository = context.getBean(UserRepository.class);
+        roleRepository = context.getBean(RoleRepository.class);
+        userController = context.getBean(UserController.class);
+        membershipWriteBehind = context.getBean(MembershipWriteBehind.class);
+        membershipIndex = context.getBean(MembershipIndex.class);
+
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            batch.add(user);
+            if (batch.size() == 1000) {
+                userRepository.insertAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            userRepository.insertAll(batch);
+        }
+
+        List<Long> ids = userRepository.findViewsAfter(0L, Limit.of(users)).stream().map(UserView::id).toList();
+        userId = ids.get(0);
+        middleUserId = ids.get(ids.size() / 2);
+        Role role = new Role();
+        role.setName("benchmark");
+        roleId = roleRepository.save(role).getId();
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate.executeWithoutResult(status -> roleRepository.addMembers(roleId, ids.subList(1, ids.size() / 10)));
+        membershipIndex.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        database.close();
+    }
+
+    @Benchmark
+    public List<User> findAll() {
+        return userRepository.findAll();
+    }
+
+    @Benchmark
+    public List<User> findPageAsEntities() {
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("SELECT u FROM User u WHERE u.id > :after ORDER BY u.id", User.class)
+                .setParameter("after", middleUserId)
+                .setMaxResults(pageSize)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<UserView> findPageAsViews() {
+        return userRepository.findViewsAfter(middleUserId, Limit.of(pageSize));
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> addAndRemoveRole() {
+        userController.addRoleToUser(userId, roleId, null);
+        return userController.removeRoleFromUser(userId, roleId, null);
+    }
+
+    @Benchmark
+    public void addAndRemoveRoleWriteBehind() {
+        userController.addRoleToUser(userId, roleId, "respond-async");
+        userController.removeRoleFromUser(userId, roleId, "respond-async");
+        membershipWriteBehind.flush();
+    }
+
+    @Benchmark
+    public long countUsersByRoleId() {
+        return roleRepository.countUsersByRoleId(roleId);
+    }
+
+    @Benchmark
+    public ResponseEntity<Set<Role>> getUserRoles() {
+        return userController.getUserRoles(middleUserId);
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> hasRole() {
+        return userController.hasRole(middleUserId, roleId);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.usercrud;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@Testcontainers
+class ReactiveStackLoadBenchmark {
+
+    private static final int[] CLIENTS = Arrays.stream(System.getProperty("benchmark.clients", "1000,5000,10000").split(","))
+            .mapToInt(Integer::parseInt)
+            .toArray();
+    private static final Duration DURATION = Duration.parse(System.getProperty("benchmark.duration", "PT30S"));
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+    private static final int USERS = 1000;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Test
+    void servletStackVersusReactiveStack() {
+        List<String> rows = new ArrayList<>();
+        rows.addAll(measure("servlet"));
+        rows.addAll(measure("servlet-virtual-threads", "virtual-threads"));
+        rows.addAll(measure("reactive", "reactive"));
+
+        System.out.println(LoadGenerator.LoadResult.header());
+        rows.forEach(System.out::println);
+    }
+
+    private List<String> measure(String stack, String... profiles) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserCrudApplication.class)
+                .profiles(profiles)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "spring.r2dbc.url=r2dbc:postgresql://" + postgres.getHost() + ":" + postgres.getFirstMappedPort()
+                                + "/" + postgres.getDatabaseName())
+                .run()) {
+            List<Long> userIds = seedUsers(context.getBean(UserRepository.class));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadGenerator loadGenerator = new LoadGenerator();
+            loadGenerator.run(CLIENTS[0], WARMUP, () -> getUser(port, userIds));
+
+            List<String> rows = new ArrayList<>();
+            for (int clients : CLIENTS) {
+                rows.add(loadGenerator.run(clients, DURATION, () -> getUser(port, userIds)).row(stack + " detail"));
+                rows.add(loadGenerator.run(clients, DURATION, () -> getPage(port, userIds)).row(stack + " page"));
+            }
+            return rows;
+        }
+    }
+
+    private static List<Long> seedUsers(UserRepository userRepository) {
+        userRepository.deleteAll();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            users.add(user);
+        }
+        return userRepository.saveAll(users).stream().map(User::getId).toList();
+    }
+
+    private static HttpRequest getUser(int port, List<Long> userIds) {
+        long userId = userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users/" + userId)).GET().build();
+    }
+
+    private static HttpRequest getPage(int port, List<Long> userIds) {
+        long after = userIds.get(ThreadLocalRandom.current().nextInt(userIds.size())) - 1;
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users?after=" + after + "&limit=100")).GET().build();
+    }
+}
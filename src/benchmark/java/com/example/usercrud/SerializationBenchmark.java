@@ -0,0 +1,100 @@
+package com.example.usercrud;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializationBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean blackbird;
+
+    private ObjectMapper objectMapper;
+    private List<User> users;
+    private List<Role> roles;
+
+    @Setup
+    public void setUp() throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        switch (format) {
+            case "smile" -> builder.factory(new SmileFactory());
+            case "cbor" -> builder.factory(new CBORFactory());
+            default -> {
+            }
+        }
+        if (blackbird) {
+            builder.modulesToInstall(BlackbirdModule.class);
+        }
+        objectMapper = builder.build();
+        users = new ArrayList<>(size);
+        roles = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            User user = new User();
+            user.setId(i);
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            users.add(user);
+
+            Role role = new Role();
+            role.setId(i);
+            role.setName("role-" + i);
+            roles.add(role);
+        }
+        byte[] serialized = serializeUsers();
+        System.out.printf("%n%d users as %s: %d bytes, %d bytes gzipped%n", size, format, serialized.length, gzip(serialized).length);
+    }
+
+    @Benchmark
+    public byte[] serializeUsers() throws Exception {
+        return objectMapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public byte[] serializeRoles() throws Exception {
+        return objectMapper.writeValueAsBytes(roles);
+    }
+
+    @Benchmark
+    public byte[] serializeUsersGzipped() throws Exception {
+        return gzip(objectMapper.writeValueAsBytes(users));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+}
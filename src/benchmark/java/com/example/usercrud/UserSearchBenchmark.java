@@ -0,0 +1,86 @@
+package com.example.usercrud;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers
+class UserSearchBenchmark {
+
+    private static final int USERS = Integer.getInteger("benchmark.users", 5_000_000);
+    private static final int ITERATIONS = 200;
+    private static final Duration TARGET = Duration.parse(System.getProperty("benchmark.search-target", "PT0.01S"));
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeAll
+    static void seedUsers(@Autowired JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("TRUNCATE users CASCADE");
+        jdbcTemplate.update("""
+                INSERT INTO users (name, email)
+                SELECT 'User ' || md5(i::text), 'user' || i || '@example.com' FROM generate_series(1, ?) i""", USERS);
+        jdbcTemplate.execute("VACUUM ANALYZE users");
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void searchLatency() {
+        String rareName = "%" + md5Prefix(USERS / 2) + "%";
+        String email = "user" + (USERS / 3) + "@example.com";
+
+        System.out.printf("%-28s %10s %10s%n", "search (" + USERS + " users)", "p50 ms", "p99 ms");
+        report("name substring (rare)", () -> userRepository.searchByName(rareName, 0, Limit.of(100)).size());
+        report("name substring (common)", () -> userRepository.searchByName("%user%", 0, Limit.of(100)).size());
+        report("email exact", () -> userRepository.searchByEmail(email.toUpperCase(), "%", 0, Limit.of(100)).size());
+    }
+
+    private static void report(String label, Supplier<Integer> search) {
+        assertThat(search.get()).isPositive();
+        for (int i = 0; i < ITERATIONS; i++) {
+            search.get();
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            search.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        long p50 = nanos[ITERATIONS / 2];
+        System.out.printf("%-28s %10.2f %10.2f%n", label, p50 / 1e6, nanos[ITERATIONS * 99 / 100] / 1e6);
+        assertThat(Duration.ofNanos(p50)).as("p50 of " + label).isLessThan(TARGET);
+    }
+
+    private static String md5Prefix(int i) {
+        try {
+            byte[] digest = java.security.MessageDigest.getInstance("MD5").digest(String.valueOf(i).getBytes());
+            return java.util.HexFormat.of().formatHex(digest).substring(0, 8);
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
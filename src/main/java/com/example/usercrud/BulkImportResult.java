@@ -0,0 +1,9 @@
+package com.example.usercrud;
+
+import java.util.List;
+
+public record BulkImportResult(int created, int failed, List<RowError> errors) {
+
+    public record RowError(int index, List<String> messages) {
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.usercrud;
+
+import java.time.Instant;
+
+public record Change(long seq, ChangeType type, Long userId, Long roleId, Instant occurredAt) {
+}
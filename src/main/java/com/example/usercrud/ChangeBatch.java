@@ -0,0 +1,6 @@
+package com.example.usercrud;
+
+import java.util.List;
+
+public record ChangeBatch(List<Change> changes, long next) {
+}
@@ -0,0 +1,63 @@
+package com.example.usercrud;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/changes")
+public class ChangeController {
+
+    private static final int MAX_WAIT_SECONDS = 60;
+
+    private final ChangeLog changeLog;
+
+    public ChangeController(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    @GetMapping
+    public DeferredResult<ResponseEntity<ChangeBatch>> getChanges(@RequestParam long since,
+                                                                  @RequestParam(defaultValue = "100") int limit,
+                                                                  @RequestParam(defaultValue = "0") int wait) {
+        if (since < 0 || limit < 1 || limit > ChangeLog.MAX_BATCH_SIZE || wait < 0 || wait > MAX_WAIT_SECONDS) {
+            return completed(ResponseEntity.badRequest().build());
+        }
+        if (!changeLog.isRetained(since)) {
+            return completed(ResponseEntity.status(HttpStatus.GONE).build());
+        }
+        List<Change> changes = changeLog.findAfter(since, limit);
+        if (!changes.isEmpty() || wait == 0) {
+            return completed(batch(changes, since));
+        }
+        DeferredResult<ResponseEntity<ChangeBatch>> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(wait),
+                () -> batch(List.of(), since));
+        Runnable cancel = changeLog.awaitAfter(since, limit, available -> result.setResult(batch(available, since)));
+        result.onCompletion(cancel);
+        return result;
+    }
+
+    @GetMapping("/head")
+    public ResponseEntity<ChangeBatch> getHead() {
+        return ResponseEntity.ok(new ChangeBatch(List.of(), changeLog.head()));
+    }
+
+    private static DeferredResult<ResponseEntity<ChangeBatch>> completed(ResponseEntity<ChangeBatch> response) {
+        DeferredResult<ResponseEntity<ChangeBatch>> result = new DeferredResult<>();
+        result.setResult(response);
+        return result;
+    }
+
+    private static ResponseEntity<ChangeBatch> batch(List<Change> changes, long since) {
+        long next = changes.isEmpty() ? since : changes.get(changes.size() - 1).seq();
+        return ResponseEntity.ok(new ChangeBatch(changes, next));
+    }
+}
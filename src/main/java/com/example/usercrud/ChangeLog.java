@@ -0,0 +1,205 @@
+package com.example.usercrud;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+@Profile("!reactive")
+public class ChangeLog {
+
+    static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_SAMPLES = 1024;
+    private static final String INSERT_QUERY = """
+            INSERT INTO changes (type, user_id, role_id)
+            SELECT type, user_id, role_id
+            FROM unnest(CAST(? AS text[]), CAST(? AS bigint[]), CAST(? AS bigint[])) WITH ORDINALITY AS input (type, user_id, role_id, position)
+            ORDER BY position
+            """;
+    private static final String FIND_AFTER_QUERY = "SELECT seq, type, user_id, role_id, occurred_at FROM changes WHERE seq > ? AND seq <= ? ORDER BY seq LIMIT ?";
+    private static final String ALLOCATED_QUERY = "SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END FROM changes_seq_seq";
+    private static final String SNAPSHOT_QUERY = """
+            SELECT CAST(CAST(pg_snapshot_xmin(snapshot) AS text) AS bigint) AS xmin,
+                   CAST(CAST(pg_snapshot_xmax(snapshot) AS text) AS bigint) AS xmax
+            FROM pg_current_snapshot() AS snapshot
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock samplesLock = new ReentrantLock();
+    private final Deque<Sample> samples = new ArrayDeque<>();
+    private long visible;
+
+    public ChangeLog(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry, @Value("${usercrud.changes.retention}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+        Gauge.builder("changes.waiters", waiters, Set::size).register(meterRegistry);
+    }
+
+    public void record(ChangeType type, Long userId, Long roleId) {
+        pendingChanges().add(new PendingChange(type, userId, roleId));
+    }
+
+    public void recordAll(ChangeType type, Collection<Long> userIds, Long roleId) {
+        List<PendingChange> pending = pendingChanges();
+        for (Long userId : userIds) {
+            pending.add(new PendingChange(type, userId, roleId));
+        }
+    }
+
+    public List<Change> findAfter(long since, int limit) {
+        return jdbcTemplate.query(FIND_AFTER_QUERY, ChangeLog::toChange, since, visible(), limit);
+    }
+
+    public long head() {
+        Long head = jdbcTemplate.queryForObject("SELECT max(seq) FROM changes WHERE seq <= ?", Long.class, visible());
+        return head == null ? 0 : head;
+    }
+
+    public boolean isRetained(long since) {
+        Long oldest = jdbcTemplate.queryForObject("SELECT min(seq) FROM changes", Long.class);
+        return oldest == null || since >= oldest - 1;
+    }
+
+    public Runnable awaitAfter(long since, int limit, Consumer<List<Change>> callback) {
+        Waiter waiter = new Waiter(since, limit, callback);
+        waiters.add(waiter);
+        return () -> waiters.remove(waiter);
+    }
+
+    @Scheduled(fixedDelayString = "${usercrud.changes.poll-interval}")
+    public void dispatch() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        long head = head();
+        Map<Long, List<Change>> changesBySince = new HashMap<>();
+        for (Waiter waiter : waiters) {
+            if (waiter.since >= head) {
+                continue;
+            }
+            List<Change> changes = changesBySince.computeIfAbsent(waiter.since, since -> findAfter(since, MAX_BATCH_SIZE));
+            if (!changes.isEmpty() && waiters.remove(waiter)) {
+                waiter.callback.accept(changes.subList(0, Math.min(waiter.limit, changes.size())));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${usercrud.changes.purge-interval}")
+    public void purge() {
+        jdbcTemplate.update("DELETE FROM changes WHERE occurred_at < ? AND seq < (SELECT max(seq) FROM changes)",
+                Timestamp.from(Instant.now().minus(retention)));
+    }
+
+    private List<PendingChange> pendingChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Changes must be recorded inside a transaction");
+        }
+        @SuppressWarnings("unchecked")
+        List<PendingChange> pending = (List<PendingChange>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<PendingChange> changes = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(changes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangeLog.this);
+                }
+            });
+            pending = changes;
+        }
+        return pending;
+    }
+
+    private void write(List<PendingChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query("SELECT pg_current_xact_id()", resultSet -> null);
+        jdbcTemplate.update(INSERT_QUERY,
+                changes.stream().map(change -> change.type().name()).toArray(String[]::new),
+                changes.stream().map(PendingChange::userId).toArray(Long[]::new),
+                changes.stream().map(PendingChange::roleId).toArray(Long[]::new));
+    }
+
+    private long visible() {
+        long allocated = jdbcTemplate.queryForObject(ALLOCATED_QUERY, Long.class);
+        Snapshot snapshot = jdbcTemplate.queryForObject(SNAPSHOT_QUERY,
+                (resultSet, rowNum) -> new Snapshot(resultSet.getLong("xmin"), resultSet.getLong("xmax")));
+        samplesLock.lock();
+        try {
+            Sample last = samples.peekLast();
+            if (last == null || last.xmax() < snapshot.xmax() || (last.xmax() == snapshot.xmax() && last.seq() < allocated)) {
+                if (last != null && (last.xmax() == snapshot.xmax() || samples.size() == MAX_SAMPLES)) {
+                    samples.removeLast();
+                }
+                samples.addLast(new Sample(allocated, snapshot.xmax()));
+            }
+            while (!samples.isEmpty() && samples.peekFirst().xmax() <= snapshot.xmin()) {
+                visible = Math.max(visible, samples.removeFirst().seq());
+            }
+            return visible;
+        } finally {
+            samplesLock.unlock();
+        }
+    }
+
+    private static Change toChange(ResultSet resultSet, int rowNum) throws SQLException {
+        return new Change(resultSet.getLong("seq"),
+                ChangeType.valueOf(resultSet.getString("type")),
+                resultSet.getObject("user_id", Long.class),
+                resultSet.getObject("role_id", Long.class),
+                resultSet.getObject("occurred_at", OffsetDateTime.class).toInstant());
+    }
+
+    private record Sample(long seq, long xmax) {
+    }
+
+    private record Snapshot(long xmin, long xmax) {
+    }
+
+    private record PendingChange(ChangeType type, Long userId, Long roleId) {
+    }
+
+    private static final class Waiter {
+
+        private final long since;
+        private final int limit;
+        private final Consumer<List<Change>> callback;
+
+        private Waiter(long since, int limit, Consumer<List<Change>> callback) {
+            this.since = since;
+            this.limit = limit;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.usercrud;
+
+public enum ChangeType {
+    USER_CREATED,
+    USER_UPDATED,
+    USER_DELETED,
+    ROLE_CREATED,
+    ROLE_UPDATED,
+    ROLE_DELETED,
+    ROLE_GRANTED,
+    ROLE_REVOKED
+}
@@ -0,0 +1,19 @@
+package com.example.usercrud;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfiguration {
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(FlywayProperties properties) {
+        return flyway -> {
+            if (properties.isEnabled()) {
+                flyway.migrate();
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.usercrud;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@Component
+@Profile("!reactive")
+public class JsonArrayStreamer {
+
+    static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    private final Map<MediaType, ObjectMapper> objectMappers = new LinkedHashMap<>();
+    private final TransactionTemplate readOnlyTransaction;
+
+    public JsonArrayStreamer(ObjectMapper objectMapper, MappingJackson2SmileHttpMessageConverter smileConverter,
+                             MappingJackson2CborHttpMessageConverter cborConverter, PlatformTransactionManager transactionManager) {
+        this.objectMappers.put(MediaType.APPLICATION_JSON, objectMapper);
+        this.objectMappers.put(APPLICATION_SMILE, smileConverter.getObjectMapper());
+        this.objectMappers.put(MediaType.APPLICATION_CBOR, cborConverter.getObjectMapper());
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> acceptable;
+        try {
+            acceptable = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        acceptable.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType candidate : acceptable) {
+            if (candidate.getQualityValue() == 0) {
+                break;
+            }
+            for (MediaType supported : objectMappers.keySet()) {
+                if (candidate.includes(supported)) {
+                    return supported;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    public String eTag(String version, MediaType mediaType) {
+        return "W/" + strongETag(version, mediaType);
+    }
+
+    public String strongETag(String version, MediaType mediaType) {
+        String tag = MediaType.APPLICATION_JSON.equals(mediaType) ? version : version + "-" + mediaType.getSubtype();
+        return "\"" + tag + "\"";
+    }
+
+    public StreamingResponseBody stream(Supplier<? extends Stream<?>> query, MediaType mediaType) {
+        ObjectMapper objectMapper = objectMappers.getOrDefault(mediaType, objectMappers.get(MediaType.APPLICATION_JSON));
+        ObjectWriter rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return outputStream -> ReplicaRoutingDataSource.readFromPrimary(() -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<?> rows = query.get(); JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                rows.forEach(row -> {
+                    try {
+                        rowWriter.writeValue(generator, row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.usercrud;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public record LookupResult<T>(List<T> items, List<Long> missing) {
+
+    static <T> LookupResult<T> inRequestedOrder(List<Long> ids, Collection<T> found, Function<T, Long> idOf) {
+        Map<Long, T> byId = new HashMap<>();
+        for (T item : found) {
+            byId.put(idOf.apply(item), item);
+        }
+        List<T> items = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            T item = byId.get(id);
+            if (item != null) {
+                items.add(item);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new LookupResult<>(items, missing);
+    }
+}
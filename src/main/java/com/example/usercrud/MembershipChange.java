@@ -0,0 +1,4 @@
+package com.example.usercrud;
+
+public record MembershipChange(long userId, long roleId, boolean add) {
+}
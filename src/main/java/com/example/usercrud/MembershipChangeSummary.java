@@ -0,0 +1,4 @@
+package com.example.usercrud;
+
+public record MembershipChangeSummary(int changed, int unchanged, int missing) {
+}
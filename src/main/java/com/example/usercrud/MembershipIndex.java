@@ -0,0 +1,209 @@
+package com.example.usercrud;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+@Profile("!reactive")
+public class MembershipIndex {
+
+    private final UserRepository userRepository;
+    private final ChangeLog changeLog;
+    private final UserRolesCache userRolesCache;
+    private final Timer buildTimer;
+    private volatile RoleIdsByUserId roleIdsByUserId;
+    private volatile long position = -1;
+    private List<Consumer<RoleIdsByUserId>> changesDuringBuild;
+
+    public MembershipIndex(UserRepository userRepository, ChangeLog changeLog, UserRolesCache userRolesCache, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.changeLog = changeLog;
+        this.userRolesCache = userRolesCache;
+        Gauge.builder("membership.index.users", this, MembershipIndex::size).register(meterRegistry);
+        this.buildTimer = Timer.builder("membership.index.build").register(meterRegistry);
+    }
+
+    public boolean hasRole(long userId, long roleId) {
+        RoleIdsByUserId index = roleIdsByUserId;
+        if (index == null) {
+            return userRepository.hasRole(userId, roleId);
+        }
+        long[] roleIds = index.get(userId);
+        return roleIds != null && Arrays.binarySearch(roleIds, roleId) >= 0;
+    }
+
+    public int size() {
+        RoleIdsByUserId index = roleIdsByUserId;
+        return index == null ? 0 : index.size();
+    }
+
+    public void added(long roleId, Collection<Long> userIds) {
+        afterCommit(index -> userIds.forEach(userId -> grant(index, userId, roleId)));
+    }
+
+    public void removed(long roleId, Collection<Long> userIds) {
+        afterCommit(index -> userIds.forEach(userId -> revoke(index, userId, roleId)));
+    }
+
+    public void userDeleted(long userId) {
+        afterCommit(index -> index.remove(userId));
+    }
+
+    @Scheduled(fixedDelayString = "${usercrud.membership.index.refresh-interval}")
+    public void rebuild() {
+        synchronized (this) {
+            if (changesDuringBuild != null) {
+                return;
+            }
+            changesDuringBuild = new ArrayList<>();
+        }
+        RoleIdsByUserId index = new RoleIdsByUserId();
+        long since = position;
+        boolean resume;
+        long head;
+        try {
+            resume = since >= 0 && changeLog.isRetained(since);
+            head = changeLog.head();
+            buildTimer.record(() -> ReplicaRoutingDataSource.readFromPrimary(
+                    () -> userRepository.forEachUserRoleIds((roleIds, userId) -> index.put(userId, roleIds))));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changesDuringBuild = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            changesDuringBuild.forEach(change -> change.accept(index));
+            changesDuringBuild = null;
+            roleIdsByUserId = index;
+            if (!resume) {
+                position = head;
+            }
+        }
+        if (since >= 0 && !resume) {
+            userRolesCache.evictAll();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${usercrud.membership.index.follow-interval}")
+    public void follow() {
+        long since = position;
+        if (since < 0) {
+            return;
+        }
+        if (!changeLog.isRetained(since)) {
+            rebuild();
+            return;
+        }
+        List<Change> changes;
+        do {
+            changes = changeLog.findAfter(since, ChangeLog.MAX_BATCH_SIZE);
+            if (changes.isEmpty() || !applyFollowed(since, changes)) {
+                return;
+            }
+            since = changes.get(changes.size() - 1).seq();
+        } while (changes.size() == ChangeLog.MAX_BATCH_SIZE);
+    }
+
+    private synchronized boolean applyFollowed(long since, List<Change> changes) {
+        if (changesDuringBuild != null || position != since) {
+            return false;
+        }
+        for (Change change : changes) {
+            switch (change.type()) {
+                case ROLE_GRANTED -> {
+                    grant(roleIdsByUserId, change.userId(), change.roleId());
+                    userRolesCache.evict(List.of(change.userId()));
+                }
+                case ROLE_REVOKED -> {
+                    revoke(roleIdsByUserId, change.userId(), change.roleId());
+                    userRolesCache.evict(List.of(change.userId()));
+                }
+                case USER_DELETED -> {
+                    roleIdsByUserId.remove(change.userId());
+                    userRolesCache.evictUser(change.userId());
+                }
+                case USER_UPDATED -> userRolesCache.evictUser(change.userId());
+                case ROLE_UPDATED, ROLE_DELETED -> userRolesCache.evictRole(change.roleId());
+                default -> {
+                }
+            }
+        }
+        position = changes.get(changes.size() - 1).seq();
+        return true;
+    }
+
+    private void afterCommit(Consumer<RoleIdsByUserId> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+        } else {
+            apply(change);
+        }
+    }
+
+    private synchronized void apply(Consumer<RoleIdsByUserId> change) {
+        if (changesDuringBuild != null) {
+            changesDuringBuild.add(change);
+        }
+        if (roleIdsByUserId != null) {
+            change.accept(roleIdsByUserId);
+        }
+    }
+
+    private static void grant(RoleIdsByUserId index, long userId, long roleId) {
+        index.put(userId, withRole(index.get(userId), roleId));
+    }
+
+    private static void revoke(RoleIdsByUserId index, long userId, long roleId) {
+        long[] roleIds = index.get(userId);
+        if (roleIds != null) {
+            index.put(userId, withoutRole(roleIds, roleId));
+        }
+    }
+
+    private static long[] withRole(long[] roleIds, long roleId) {
+        if (roleIds == null) {
+            return new long[] {roleId};
+        }
+        int position = Arrays.binarySearch(roleIds, roleId);
+        if (position >= 0) {
+            return roleIds;
+        }
+        int insertAt = -position - 1;
+        long[] copy = new long[roleIds.length + 1];
+        System.arraycopy(roleIds, 0, copy, 0, insertAt);
+        copy[insertAt] = roleId;
+        System.arraycopy(roleIds, insertAt, copy, insertAt + 1, roleIds.length - insertAt);
+        return copy;
+    }
+
+    private static long[] withoutRole(long[] roleIds, long roleId) {
+        int position = Arrays.binarySearch(roleIds, roleId);
+        if (position < 0) {
+            return roleIds;
+        }
+        if (roleIds.length == 1) {
+            return null;
+        }
+        long[] copy = new long[roleIds.length - 1];
+        System.arraycopy(roleIds, 0, copy, 0, position);
+        System.arraycopy(roleIds, position + 1, copy, position, copy.length - position);
+        return copy;
+    }
+}
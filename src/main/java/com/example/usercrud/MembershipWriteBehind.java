@@ -0,0 +1,222 @@
+package com.example.usercrud;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Component
+@Profile("!reactive")
+public class MembershipWriteBehind implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(MembershipWriteBehind.class);
+    private static final int FLUSH_CHUNK_SIZE = 1000;
+
+    private final RoleRepository roleRepository;
+    private final UserRolesCache userRolesCache;
+    private final MembershipIndex membershipIndex;
+    private final ChangeLog changeLog;
+    private final TransactionTemplate transaction;
+    private final ObjectReader changeReader;
+    private final ObjectWriter changeWriter;
+    private final Path spillFile;
+    private final int maxPending;
+    private final Timer flushTimer;
+    private final Counter flushed;
+    private final Counter coalesced;
+    private final Counter rejected;
+    private final Object flushLock = new Object();
+    private Map<Key, Boolean> pending = new LinkedHashMap<>();
+    private boolean spillFileLoaded;
+    private volatile boolean running;
+
+    public MembershipWriteBehind(RoleRepository roleRepository, UserRolesCache userRolesCache, MembershipIndex membershipIndex, ChangeLog changeLog,
+                                 PlatformTransactionManager transactionManager, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                 @Value("${usercrud.membership.write-behind.spill-file}") Path spillFile,
+                                 @Value("${usercrud.membership.write-behind.max-pending}") int maxPending) {
+        this.roleRepository = roleRepository;
+        this.userRolesCache = userRolesCache;
+        this.membershipIndex = membershipIndex;
+        this.changeLog = changeLog;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.changeReader = objectMapper.readerFor(MembershipChange.class);
+        this.changeWriter = objectMapper.writerFor(MembershipChange.class);
+        this.spillFile = spillFile;
+        this.maxPending = maxPending;
+        Gauge.builder("membership.write_behind.pending", this, MembershipWriteBehind::pendingCount).register(meterRegistry);
+        this.flushTimer = Timer.builder("membership.write_behind.flush").register(meterRegistry);
+        this.flushed = Counter.builder("membership.write_behind.flushed").register(meterRegistry);
+        this.coalesced = Counter.builder("membership.write_behind.coalesced").register(meterRegistry);
+        this.rejected = Counter.builder("membership.write_behind.rejected").register(meterRegistry);
+    }
+
+    public synchronized boolean offer(long userId, long roleId, boolean add) {
+        Key key = new Key(userId, roleId);
+        if (!running || (pending.size() >= maxPending && !pending.containsKey(key))) {
+            rejected.increment();
+            return false;
+        }
+        if (pending.put(key, add) != null) {
+            coalesced.increment();
+        }
+        return true;
+    }
+
+    public void discard(long userId, long roleId) {
+        synchronized (flushLock) {
+            synchronized (this) {
+                pending.remove(new Key(userId, roleId));
+            }
+        }
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${usercrud.membership.write-behind.flush-interval}")
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Key, Boolean> changes = drain();
+            if (!changes.isEmpty()) {
+                try {
+                    flushTimer.record(() -> apply(changes));
+                } catch (RuntimeException e) {
+                    requeue(changes);
+                    throw e;
+                }
+                flushed.increment(changes.size());
+            }
+            if (spillFileLoaded) {
+                deleteSpillFile();
+                spillFileLoaded = false;
+            }
+        }
+    }
+
+    private void apply(Map<Key, Boolean> changes) {
+        Map<Long, List<Long>> added = new LinkedHashMap<>();
+        Map<Long, List<Long>> removed = new LinkedHashMap<>();
+        changes.forEach((key, add) -> (add ? added : removed).computeIfAbsent(key.roleId(), roleId -> new ArrayList<>()).add(key.userId()));
+        transaction.executeWithoutResult(status -> {
+            added.forEach((roleId, userIds) -> forEachChunk(userIds, chunk -> {
+                List<Long> granted = roleRepository.addMembers(roleId, chunk);
+                membershipIndex.added(roleId, granted);
+                changeLog.recordAll(ChangeType.ROLE_GRANTED, granted, roleId);
+            }));
+            removed.forEach((roleId, userIds) -> forEachChunk(userIds, chunk -> {
+                List<Long> revoked = roleRepository.removeMembers(roleId, chunk);
+                membershipIndex.removed(roleId, revoked);
+                changeLog.recordAll(ChangeType.ROLE_REVOKED, revoked, roleId);
+            }));
+        });
+    }
+
+    private void forEachChunk(List<Long> userIds, Consumer<List<Long>> statement) {
+        for (int from = 0; from < userIds.size(); from += FLUSH_CHUNK_SIZE) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, userIds.size()));
+            statement.accept(chunk);
+            userRolesCache.evict(chunk);
+        }
+    }
+
+    private synchronized Map<Key, Boolean> drain() {
+        Map<Key, Boolean> changes = pending;
+        pending = new LinkedHashMap<>();
+        return changes;
+    }
+
+    private synchronized void requeue(Map<Key, Boolean> changes) {
+        changes.forEach(pending::putIfAbsent);
+    }
+
+    @Override
+    public void start() {
+        if (Files.exists(spillFile)) {
+            try (MappingIterator<MembershipChange> changes = changeReader.readValues(spillFile.toFile())) {
+                synchronized (flushLock) {
+                    synchronized (this) {
+                        while (changes.hasNextValue()) {
+                            MembershipChange change = changes.nextValue();
+                            pending.put(new Key(change.userId(), change.roleId()), change.add());
+                        }
+                    }
+                    spillFileLoaded = true;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            Map<Key, Boolean> changes = drain();
+            spill(changes);
+            log.warn("Could not flush {} membership changes on shutdown, spilled them to {}", changes.size(), spillFile, e);
+        }
+    }
+
+    private void deleteSpillFile() {
+        try {
+            Files.deleteIfExists(spillFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void spill(Map<Key, Boolean> changes) {
+        try {
+            Files.createDirectories(spillFile.toAbsolutePath().getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile)) {
+                for (Map.Entry<Key, Boolean> change : changes.entrySet()) {
+                    writer.write(changeWriter.writeValueAsString(new MembershipChange(change.getKey().userId(), change.getKey().roleId(), change.getValue())));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private record Key(long userId, long roleId) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.usercrud;
+
+import java.util.Collection;
+import java.util.Collections;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("reactive")
+public class ReactiveChangeLog {
+
+    private static final String INSERT_QUERY = """
+            INSERT INTO changes (type, user_id, role_id)
+            SELECT type, user_id, role_id
+            FROM unnest(CAST(:types AS text[]), CAST(:userIds AS bigint[]), CAST(:roleIds AS bigint[])) WITH ORDINALITY AS input (type, user_id, role_id, position)
+            ORDER BY position""";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveChangeLog(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Void> record(ChangeType type, Long userId, Long roleId) {
+        return recordAll(type, Collections.singletonList(userId), roleId);
+    }
+
+    public Mono<Void> recordAll(ChangeType type, Collection<Long> userIds, Long roleId) {
+        if (userIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return databaseClient.sql("SELECT pg_current_xact_id()")
+                .then()
+                .then(databaseClient.sql(INSERT_QUERY)
+                        .bind("types", Collections.nCopies(userIds.size(), type.name()).toArray(String[]::new))
+                        .bind("userIds", userIds.toArray(Long[]::new))
+                        .bind("roleIds", Collections.nCopies(userIds.size(), roleId).toArray(Long[]::new))
+                        .then());
+    }
+}
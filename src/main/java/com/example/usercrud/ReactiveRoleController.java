@@ -0,0 +1,218 @@
+package com.example.usercrud;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/roles")
+public class ReactiveRoleController {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_LOOKUP_SIZE = 10_000;
+    private static final int MEMBERSHIP_CHUNK_SIZE = 1000;
+
+    private final ReactiveRoleRepository roleRepository;
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveTableVersionRepository tableVersionRepository;
+    private final ReactiveChangeLog changeLog;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactiveRoleController(ReactiveRoleRepository roleRepository, ReactiveUserRepository userRepository,
+                                  ReactiveTableVersionRepository tableVersionRepository, ReactiveChangeLog changeLog,
+                                  TransactionalOperator transactionalOperator) {
+        this.roleRepository = roleRepository;
+        this.userRepository = userRepository;
+        this.tableVersionRepository = tableVersionRepository;
+        this.changeLog = changeLog;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<RoleView>> createRole(@RequestBody Role role) {
+        if (role.getName() == null || role.getName().isBlank()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return roleRepository.existsByName(role.getName())
+                .flatMap(exists -> exists
+                        ? Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).<RoleView>build())
+                        : roleRepository.insert(role)
+                                .flatMap(savedRole -> tableVersionRepository.increment(TableVersion.ROLES)
+                                        .then(changeLog.record(ChangeType.ROLE_CREATED, null, savedRole.id()))
+                                        .thenReturn(ResponseEntity.status(HttpStatus.CREATED).eTag(String.valueOf(savedRole.version())).body(savedRole))))
+                .as(transactionalOperator::transactional);
+    }
+
+    @GetMapping(params = {"!after", "!limit", "!withCounts", "!ids"})
+    public Mono<ResponseEntity<Flux<RoleView>>> getAllRoles(ServerWebExchange exchange) {
+        return tableVersionRepository.currentETag(TableVersion.ROLES)
+                .map(eTag -> {
+                    if (exchange.checkNotModified(eTag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).<Flux<RoleView>>build();
+                    }
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .eTag(eTag)
+                            .body(roleRepository.streamAll());
+                });
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Flux<RoleView>>> getRolesPage(@RequestParam(defaultValue = "0") long after,
+                                                             @RequestParam(defaultValue = "100") int limit,
+                                                             ServerWebExchange exchange) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return tableVersionRepository.currentETag(TableVersion.ROLES)
+                .map(eTag -> {
+                    if (exchange.checkNotModified(eTag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).<Flux<RoleView>>build();
+                    }
+                    return ResponseEntity.ok().eTag(eTag).body(roleRepository.findViewsAfter(after, limit));
+                });
+    }
+
+    @GetMapping(params = "ids")
+    public Mono<ResponseEntity<LookupResult<RoleView>>> getRolesByIds(@RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return lookup(ids).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/lookup")
+    public Mono<ResponseEntity<LookupResult<RoleView>>> lookupRoles(@RequestBody List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return lookup(ids).map(ResponseEntity::ok);
+    }
+
+    private Mono<LookupResult<RoleView>> lookup(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        return roleRepository.findViewsByIds(distinctIds)
+                .collectList()
+                .map(found -> LookupResult.inRequestedOrder(distinctIds, found, RoleView::id));
+    }
+
+    @GetMapping(params = "withCounts=true")
+    public ResponseEntity<Flux<RoleWithMemberCount>> getRolesWithMemberCounts(@RequestParam(defaultValue = "0") long after,
+                                                                              @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(roleRepository.findViewsWithMemberCountAfter(after, limit));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<RoleView>> getRoleById(@PathVariable Long id) {
+        return roleRepository.findViewById(id)
+                .map(role -> ResponseEntity.ok().eTag(String.valueOf(role.version())).body(role))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<RoleView>> updateRole(@PathVariable Long id, @RequestBody Role updateRequest, ServerWebExchange exchange) {
+        if (updateRequest.getName() == null || updateRequest.getName().isBlank()) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return roleRepository.findViewById(id)
+                .flatMap(role -> {
+                    if (exchange.checkNotModified(String.valueOf(role.version()))) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<RoleView>build());
+                    }
+                    Mono<Boolean> nameTaken = role.name().equals(updateRequest.getName())
+                            ? Mono.just(false)
+                            : roleRepository.existsByName(updateRequest.getName());
+                    return nameTaken.flatMap(taken -> taken
+                            ? Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).<RoleView>build())
+                            : roleRepository.update(id, updateRequest.getName(), role.version())
+                                    .flatMap(savedRole -> tableVersionRepository.increment(TableVersion.ROLES)
+                                            .then(changeLog.record(ChangeType.ROLE_UPDATED, null, savedRole.id()))
+                                            .thenReturn(ResponseEntity.ok().eTag(String.valueOf(savedRole.version())).body(savedRole)))
+                                    .defaultIfEmpty(ResponseEntity.status(HttpStatus.CONFLICT).build()));
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .as(transactionalOperator::transactional);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteRole(@PathVariable Long id) {
+        return roleRepository.existsById(id)
+                .flatMap(exists -> {
+                    if (!exists) {
+                        return Mono.just(ResponseEntity.notFound().<Void>build());
+                    }
+                    return roleRepository.countUsersByRoleId(id)
+                            .flatMap(members -> members > 0
+                                    ? Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).<Void>build())
+                                    : roleRepository.deleteById(id)
+                                            .then(tableVersionRepository.increment(TableVersion.ROLES))
+                                            .then(changeLog.record(ChangeType.ROLE_DELETED, null, id))
+                                            .thenReturn(ResponseEntity.noContent().<Void>build()));
+                })
+                .as(transactionalOperator::transactional);
+    }
+
+    @GetMapping("/{id}/members")
+    public Mono<ResponseEntity<Flux<UserView>>> getMembers(@PathVariable Long id,
+                                                           @RequestParam(defaultValue = "0") long after,
+                                                           @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return roleRepository.existsById(id)
+                .map(exists -> exists
+                        ? ResponseEntity.ok(userRepository.findMembersAfter(id, after, limit))
+                        : ResponseEntity.notFound().<Flux<UserView>>build());
+    }
+
+    @PostMapping("/{id}/members")
+    public Mono<ResponseEntity<MembershipChangeSummary>> addMembers(@PathVariable Long id, @RequestBody List<Long> userIds) {
+        return changeMembers(id, userIds, chunk -> roleRepository.addMembers(id, chunk)
+                .flatMap(granted -> changeLog.recordAll(ChangeType.ROLE_GRANTED, granted, id).thenReturn(granted.size())));
+    }
+
+    @DeleteMapping("/{id}/members")
+    public Mono<ResponseEntity<MembershipChangeSummary>> removeMembers(@PathVariable Long id, @RequestBody List<Long> userIds) {
+        return changeMembers(id, userIds, chunk -> roleRepository.removeMembers(id, chunk)
+                .flatMap(revoked -> changeLog.recordAll(ChangeType.ROLE_REVOKED, revoked, id).thenReturn(revoked.size())));
+    }
+
+    private Mono<ResponseEntity<MembershipChangeSummary>> changeMembers(Long roleId, List<Long> userIds,
+                                                                        Function<List<Long>, Mono<Integer>> statement) {
+        List<Long> distinctIds = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        Mono<MembershipChangeSummary> summary = Flux.fromIterable(distinctIds)
+                .buffer(MEMBERSHIP_CHUNK_SIZE)
+                .concatMap(chunk -> userRepository.countExisting(chunk)
+                        .flatMap(found -> statement.apply(chunk).map(changed -> new MembershipChangeSummary(
+                                changed, (int) (found - changed), (int) (chunk.size() - found)))))
+                .reduce((total, next) -> new MembershipChangeSummary(total.changed() + next.changed(),
+                        total.unchanged() + next.unchanged(), total.missing() + next.missing()))
+                .defaultIfEmpty(new MembershipChangeSummary(0, 0, 0));
+        return roleRepository.existsById(roleId)
+                .flatMap(exists -> exists
+                        ? summary.map(ResponseEntity::ok)
+                        : Mono.just(ResponseEntity.notFound().<MembershipChangeSummary>build()))
+                .as(transactionalOperator::transactional);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.usercrud;
+
+import io.r2dbc.spi.Readable;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("reactive")
+public class ReactiveRoleRepository {
+
+    private static final int FETCH_SIZE = 500;
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveRoleRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<RoleView> insert(Role role) {
+        return databaseClient.sql("INSERT INTO roles (name, version) VALUES (:name, 0) RETURNING id, name, version")
+                .bind("name", role.getName())
+                .map(ReactiveRoleRepository::toView)
+                .one();
+    }
+
+    public Mono<RoleView> findViewById(Long id) {
+        return databaseClient.sql("SELECT id, name, version FROM roles WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveRoleRepository::toView)
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM roles WHERE id = :id) AS present")
+                .bind("id", id)
+                .map(row -> row.get("present", Boolean.class))
+                .one();
+    }
+
+    public Mono<Boolean> existsByName(String name) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM roles WHERE name = :name) AS present")
+                .bind("name", name)
+                .map(row -> row.get("present", Boolean.class))
+                .one();
+    }
+
+    public Flux<RoleView> findViewsByIds(Collection<Long> ids) {
+        return databaseClient.sql("SELECT id, name, version FROM roles WHERE id = ANY(:ids)")
+                .bind("ids", ids.toArray(Long[]::new))
+                .map(ReactiveRoleRepository::toView)
+                .all();
+    }
+
+    public Flux<RoleView> streamAll() {
+        return databaseClient.sql("SELECT id, name, version FROM roles ORDER BY id")
+                .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .map(ReactiveRoleRepository::toView)
+                .all();
+    }
+
+    public Flux<RoleView> findViewsAfter(long after, int limit) {
+        return databaseClient.sql("SELECT id, name, version FROM roles WHERE id > :after ORDER BY id LIMIT :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveRoleRepository::toView)
+                .all();
+    }
+
+    public Flux<RoleWithMemberCount> findViewsWithMemberCountAfter(long after, int limit) {
+        return databaseClient.sql("""
+                        SELECT r.id, r.name, count(ur.user_id) AS member_count FROM roles r
+                        LEFT JOIN user_roles ur ON ur.role_id = r.id
+                        WHERE r.id > :after
+                        GROUP BY r.id, r.name
+                        ORDER BY r.id LIMIT :limit""")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(row -> new RoleWithMemberCount(row.get("id", Long.class), row.get("name", String.class),
+                        row.get("member_count", Long.class)))
+                .all();
+    }
+
+    public Mono<Long> countUsersByRoleId(Long roleId) {
+        return databaseClient.sql("SELECT count(*) AS members FROM user_roles WHERE role_id = :roleId")
+                .bind("roleId", roleId)
+                .map(row -> row.get("members", Long.class))
+                .one();
+    }
+
+    public Mono<RoleView> update(Long id, String name, Long expectedVersion) {
+        return databaseClient.sql("""
+                        UPDATE roles SET name = :name, version = version + 1
+                        WHERE id = :id AND version = :version
+                        RETURNING id, name, version""")
+                .bind("name", name)
+                .bind("id", id)
+                .bind("version", expectedVersion)
+                .map(ReactiveRoleRepository::toView)
+                .one();
+    }
+
+    public Mono<Long> deleteById(Long id) {
+        return databaseClient.sql("DELETE FROM roles WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<List<Long>> addMembers(Long roleId, Collection<Long> userIds) {
+        return databaseClient.sql("""
+                        INSERT INTO user_roles (user_id, role_id)
+                        SELECT u.id, r.id FROM users u JOIN roles r ON r.id = :roleId WHERE u.id IN (:userIds)
+                        ON CONFLICT DO NOTHING
+                        RETURNING user_id""")
+                .bind("roleId", roleId)
+                .bind("userIds", userIds)
+                .map(row -> row.get("user_id", Long.class))
+                .all()
+                .collectList();
+    }
+
+    public Mono<List<Long>> removeMembers(Long roleId, Collection<Long> userIds) {
+        return databaseClient.sql("DELETE FROM user_roles WHERE role_id = :roleId AND user_id IN (:userIds) RETURNING user_id")
+                .bind("roleId", roleId)
+                .bind("userIds", userIds)
+                .map(row -> row.get("user_id", Long.class))
+                .all()
+                .collectList();
+    }
+
+    static RoleView toView(Readable row) {
+        return new RoleView(row.get("id", Long.class), row.get("name", String.class), row.get("version", Long.class));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.usercrud;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("reactive")
+public class ReactiveTableVersionRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveTableVersionRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Void> increment(String tableName) {
+        return databaseClient.sql("""
+                        INSERT INTO table_versions (table_name, version) VALUES (:tableName, 1)
+                        ON CONFLICT (table_name) DO UPDATE SET version = table_versions.version + 1""")
+                .bind("tableName", tableName)
+                .then();
+    }
+
+    public Mono<String> currentETag(String tableName) {
+        return databaseClient.sql("SELECT version FROM table_versions WHERE table_name = :tableName")
+                .bind("tableName", tableName)
+                .map(row -> row.get("version", Long.class))
+                .one()
+                .defaultIfEmpty(0L)
+                .map(String::valueOf);
+    }
+}
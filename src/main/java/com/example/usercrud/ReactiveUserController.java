@@ -0,0 +1,279 @@
+package com.example.usercrud;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.codec.CodecException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/users")
+public class ReactiveUserController {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_LOOKUP_SIZE = 10_000;
+    private static final int IMPORT_BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_IMPORT_ERRORS = 1000;
+
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveRoleRepository roleRepository;
+    private final ReactiveTableVersionRepository tableVersionRepository;
+    private final ReactiveChangeLog changeLog;
+    private final TransactionalOperator transactionalOperator;
+    private final Validator validator;
+
+    public ReactiveUserController(ReactiveUserRepository userRepository, ReactiveRoleRepository roleRepository,
+                                  ReactiveTableVersionRepository tableVersionRepository, ReactiveChangeLog changeLog,
+                                  TransactionalOperator transactionalOperator, Validator validator) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.tableVersionRepository = tableVersionRepository;
+        this.changeLog = changeLog;
+        this.transactionalOperator = transactionalOperator;
+        this.validator = validator;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<UserView>> createUser(@Valid @RequestBody User user) {
+        return userRepository.insert(user)
+                .flatMap(savedUser -> tableVersionRepository.increment(TableVersion.USERS)
+                        .then(changeLog.record(ChangeType.USER_CREATED, savedUser.id(), null))
+                        .thenReturn(savedUser))
+                .as(transactionalOperator::transactional)
+                .map(savedUser -> ResponseEntity.status(HttpStatus.CREATED).eTag(String.valueOf(savedUser.version())).body(savedUser))
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).build()));
+    }
+
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<BulkImportResult>> importUsers(@RequestBody Flux<User> body) {
+        ImportProgress progress = new ImportProgress();
+        return body
+                .onErrorResume(CodecException.class, e -> {
+                    progress.malformed(e);
+                    return Flux.empty();
+                })
+                .index()
+                .filter(row -> progress.accept(validator.validate(row.getT2())))
+                .buffer(IMPORT_BATCH_SIZE)
+                .concatMap(batch -> userRepository.insertAll(batch.stream().map(Tuple2::getT2).toList())
+                        .flatMap(inserted -> tableVersionRepository.increment(TableVersion.USERS)
+                                .then(changeLog.recordAll(ChangeType.USER_CREATED, inserted.insertedIds(), null))
+                                .thenReturn(inserted.skipped()))
+                        .as(transactionalOperator::transactional)
+                        .map(skipped -> progress.inserted(batch, skipped)))
+                .reduce(0, Integer::sum)
+                .map(created -> ResponseEntity.ok(progress.result(created)));
+    }
+
+    @GetMapping(params = {"!after", "!limit", "!q", "!email", "!ids"})
+    public Mono<ResponseEntity<Flux<UserView>>> getAllUsers(ServerWebExchange exchange) {
+        return tableVersionRepository.currentETag(TableVersion.USERS)
+                .map(eTag -> {
+                    if (exchange.checkNotModified(eTag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).<Flux<UserView>>build();
+                    }
+                    return ResponseEntity.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .eTag(eTag)
+                            .body(userRepository.streamAll());
+                });
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Flux<UserView>>> getUsersPage(@RequestParam(defaultValue = "0") long after,
+                                                             @RequestParam(defaultValue = "100") int limit,
+                                                             @RequestParam(required = false) String q,
+                                                             @RequestParam(required = false) String email,
+                                                             ServerWebExchange exchange) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return tableVersionRepository.currentETag(TableVersion.USERS)
+                .map(eTag -> {
+                    if (exchange.checkNotModified(eTag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).<Flux<UserView>>build();
+                    }
+                    Flux<UserView> users;
+                    if (email != null) {
+                        users = userRepository.searchByEmail(email, UserController.containsPattern(q), after, limit);
+                    } else if (q != null) {
+                        users = userRepository.searchByName(UserController.containsPattern(q), after, limit);
+                    } else {
+                        users = userRepository.findViewsAfter(after, limit);
+                    }
+                    return ResponseEntity.ok().eTag(eTag).body(users);
+                });
+    }
+
+    @GetMapping(params = "ids")
+    public Mono<ResponseEntity<LookupResult<UserView>>> getUsersByIds(@RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return lookup(ids).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/lookup")
+    public Mono<ResponseEntity<LookupResult<UserView>>> lookupUsers(@RequestBody List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return lookup(ids).map(ResponseEntity::ok);
+    }
+
+    private Mono<LookupResult<UserView>> lookup(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        return userRepository.findViewsByIds(distinctIds)
+                .collectList()
+                .map(found -> LookupResult.inRequestedOrder(distinctIds, found, UserView::id));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<UserView>> getUserById(@PathVariable Long id) {
+        return userRepository.findViewById(id)
+                .map(user -> ResponseEntity.ok().eTag(String.valueOf(user.version())).body(user))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<UserView>> updateUser(@PathVariable Long id, @Validated(User.PartialUpdate.class) @RequestBody User updateRequest, ServerWebExchange exchange) {
+        return userRepository.findViewById(id)
+                .flatMap(user -> {
+                    if (exchange.checkNotModified(String.valueOf(user.version()))) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<UserView>build());
+                    }
+                    String name = updateRequest.getName() != null ? updateRequest.getName() : user.name();
+                    String email = updateRequest.getEmail() != null ? updateRequest.getEmail() : user.email();
+                    return userRepository.update(id, name, email, user.version())
+                            .flatMap(savedUser -> tableVersionRepository.increment(TableVersion.USERS)
+                                    .then(changeLog.record(ChangeType.USER_UPDATED, savedUser.id(), null))
+                                    .thenReturn(ResponseEntity.ok().eTag(String.valueOf(savedUser.version())).body(savedUser)))
+                            .defaultIfEmpty(ResponseEntity.status(HttpStatus.CONFLICT).build());
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .as(transactionalOperator::transactional)
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).build()));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable Long id) {
+        return userRepository.deleteById(id)
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.just(ResponseEntity.notFound().<Void>build())
+                        : tableVersionRepository.increment(TableVersion.USERS)
+                                .then(changeLog.record(ChangeType.USER_DELETED, id, null))
+                                .thenReturn(ResponseEntity.noContent().<Void>build()))
+                .as(transactionalOperator::transactional);
+    }
+
+    @GetMapping("/{userId}/roles")
+    public Mono<ResponseEntity<List<RoleView>>> getUserRoles(@PathVariable Long userId) {
+        return userRepository.existsById(userId)
+                .flatMap(exists -> exists
+                        ? userRepository.findRoles(userId).collectList().map(ResponseEntity::ok)
+                        : Mono.just(ResponseEntity.notFound().<List<RoleView>>build()));
+    }
+
+    @GetMapping("/roles")
+    public Mono<ResponseEntity<Map<Long, List<RoleView>>>> getRolesByUserIds(@RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return userRepository.findRolesByUserIds(ids).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/{userId}/roles/{roleId}")
+    public Mono<ResponseEntity<RoleView>> addRoleToUser(@PathVariable Long userId, @PathVariable Long roleId) {
+        return userRepository.addRole(userId, roleId)
+                .flatMap(added -> {
+                    if (added > 0) {
+                        return changeLog.record(ChangeType.ROLE_GRANTED, userId, roleId)
+                                .then(roleRepository.findViewById(roleId))
+                                .map(ResponseEntity::ok);
+                    }
+                    return userRepository.existsById(userId)
+                            .flatMap(userExists -> userExists ? roleRepository.existsById(roleId) : Mono.just(false))
+                            .map(bothExist -> ResponseEntity.status(bothExist ? HttpStatus.CONFLICT : HttpStatus.NOT_FOUND).<RoleView>build());
+                })
+                .as(transactionalOperator::transactional);
+    }
+
+    @DeleteMapping("/{userId}/roles/{roleId}")
+    public Mono<ResponseEntity<Void>> removeRoleFromUser(@PathVariable Long userId, @PathVariable Long roleId) {
+        return userRepository.removeRole(userId, roleId)
+                .flatMap(removed -> removed == 0
+                        ? Mono.just(ResponseEntity.notFound().<Void>build())
+                        : changeLog.record(ChangeType.ROLE_REVOKED, userId, roleId).thenReturn(ResponseEntity.noContent().<Void>build()))
+                .as(transactionalOperator::transactional);
+    }
+
+    private static final class ImportProgress {
+
+        private final List<BulkImportResult.RowError> errors = new ArrayList<>();
+        private int index;
+        private int failed;
+
+        boolean accept(Set<ConstraintViolation<User>> violations) {
+            int row = index++;
+            if (violations.isEmpty()) {
+                return true;
+            }
+            failed++;
+            if (errors.size() < MAX_REPORTED_IMPORT_ERRORS) {
+                errors.add(new BulkImportResult.RowError(row, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .sorted()
+                        .toList()));
+            }
+            return false;
+        }
+
+        void malformed(CodecException e) {
+            failed++;
+            String message = e.getCause() instanceof JsonProcessingException cause ? cause.getOriginalMessage() : e.getMessage();
+            errors.add(new BulkImportResult.RowError(index, List.of("malformed JSON: " + message)));
+        }
+
+        int inserted(List<Tuple2<Long, User>> batch, List<Integer> skipped) {
+            for (int position : skipped) {
+                failed++;
+                if (errors.size() < MAX_REPORTED_IMPORT_ERRORS) {
+                    errors.add(new BulkImportResult.RowError(batch.get(position).getT1().intValue(), List.of(UserController.DUPLICATE_EMAIL)));
+                }
+            }
+            return batch.size() - skipped.size();
+        }
+
+        BulkImportResult result(int created) {
+            errors.sort(Comparator.comparingInt(BulkImportResult.RowError::index));
+            return new BulkImportResult(created, failed, errors);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.usercrud;
+
+import io.r2dbc.spi.Readable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    private static final int FETCH_SIZE = 500;
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<UserView> insert(User user) {
+        return databaseClient.sql("INSERT INTO users (name, email, version) VALUES (:name, :email, 0) RETURNING id, name, email, version")
+                .bind("name", user.getName())
+                .bind("email", user.getEmail())
+                .map(ReactiveUserRepository::toView)
+                .one();
+    }
+
+    public Mono<BulkInsert> insertAll(List<User> users) {
+        return databaseClient.sql("""
+                        WITH input AS (
+                            SELECT name, email, position
+                            FROM unnest(CAST(:names AS text[]), CAST(:emails AS text[])) WITH ORDINALITY AS input (name, email, position)
+                        ), inserted AS (
+                            INSERT INTO users (name, email, version)
+                            SELECT name, email, 0 FROM input ORDER BY position
+                            ON CONFLICT ((lower(email))) DO NOTHING
+                            RETURNING id, lower(email) AS email_key
+                        )
+                        SELECT CAST(i.position - 1 AS integer) AS position, n.id FROM input i
+                        LEFT JOIN inserted n ON n.email_key = lower(i.email)
+                            AND NOT EXISTS (SELECT 1 FROM input earlier WHERE lower(earlier.email) = lower(i.email) AND earlier.position < i.position)
+                        ORDER BY i.position""")
+                .bind("names", users.stream().map(User::getName).toArray(String[]::new))
+                .bind("emails", users.stream().map(User::getEmail).toArray(String[]::new))
+                .map(row -> Map.entry(row.get("position", Integer.class), Optional.ofNullable(row.get("id", Long.class))))
+                .all()
+                .collect(() -> new BulkInsert(new ArrayList<>(), new ArrayList<>()), (result, row) -> {
+                    if (row.getValue().isPresent()) {
+                        result.insertedIds().add(row.getValue().get());
+                    } else {
+                        result.skipped().add(row.getKey());
+                    }
+                });
+    }
+
+    public Mono<UserView> findViewById(Long id) {
+        return databaseClient.sql("SELECT id, name, email, version FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toView)
+                .one();
+    }
+
+    public Flux<UserView> findViewsByIds(Collection<Long> ids) {
+        return databaseClient.sql("SELECT id, name, email, version FROM users WHERE id = ANY(:ids)")
+                .bind("ids", ids.toArray(Long[]::new))
+                .map(ReactiveUserRepository::toView)
+                .all();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM users WHERE id = :id) AS present")
+                .bind("id", id)
+                .map(row -> row.get("present", Boolean.class))
+                .one();
+    }
+
+    public Flux<UserView> streamAll() {
+        return databaseClient.sql("SELECT id, name, email, version FROM users ORDER BY id")
+                .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .map(ReactiveUserRepository::toView)
+                .all();
+    }
+
+    public Flux<UserView> findViewsAfter(long after, int limit) {
+        return databaseClient.sql("SELECT id, name, email, version FROM users WHERE id > :after ORDER BY id LIMIT :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toView)
+                .all();
+    }
+
+    public Flux<UserView> searchByName(String namePattern, long after, int limit) {
+        return databaseClient.sql("""
+                        SELECT id, name, email, version FROM users
+                        WHERE lower(name) LIKE :namePattern ESCAPE '!' AND id > :after
+                        ORDER BY id LIMIT :limit""")
+                .bind("namePattern", namePattern)
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toView)
+                .all();
+    }
+
+    public Flux<UserView> searchByEmail(String email, String namePattern, long after, int limit) {
+        return databaseClient.sql("""
+                        SELECT id, name, email, version FROM users
+                        WHERE lower(email) = lower(:email) AND lower(name) LIKE :namePattern ESCAPE '!' AND id > :after
+                        ORDER BY id LIMIT :limit""")
+                .bind("email", email)
+                .bind("namePattern", namePattern)
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toView)
+                .all();
+    }
+
+    public Flux<UserView> findMembersAfter(Long roleId, long after, int limit) {
+        return databaseClient.sql("""
+                        SELECT u.id, u.name, u.email, u.version FROM users u JOIN user_roles ur ON ur.user_id = u.id
+                        WHERE ur.role_id = :roleId AND u.id > :after
+                        ORDER BY u.id LIMIT :limit""")
+                .bind("roleId", roleId)
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveUserRepository::toView)
+                .all();
+    }
+
+    public Mono<Long> countExisting(Collection<Long> ids) {
+        return databaseClient.sql("SELECT count(*) AS existing FROM users WHERE id IN (:ids)")
+                .bind("ids", ids)
+                .map(row -> row.get("existing", Long.class))
+                .one();
+    }
+
+    public Mono<UserView> update(Long id, String name, String email, Long expectedVersion) {
+        return databaseClient.sql("""
+                        UPDATE users SET name = :name, email = :email, version = version + 1
+                        WHERE id = :id AND version = :version
+                        RETURNING id, name, email, version""")
+                .bind("name", name)
+                .bind("email", email)
+                .bind("id", id)
+                .bind("version", expectedVersion)
+                .map(ReactiveUserRepository::toView)
+                .one();
+    }
+
+    public Mono<Long> deleteById(Long id) {
+        return databaseClient.sql("DELETE FROM user_roles WHERE user_id = :id")
+                .bind("id", id)
+                .then()
+                .then(databaseClient.sql("DELETE FROM users WHERE id = :id")
+                        .bind("id", id)
+                        .fetch()
+                        .rowsUpdated());
+    }
+
+    public Flux<RoleView> findRoles(Long userId) {
+        return databaseClient.sql("""
+                        SELECT r.id, r.name, r.version FROM roles r JOIN user_roles ur ON ur.role_id = r.id
+                        WHERE ur.user_id = :userId""")
+                .bind("userId", userId)
+                .map(ReactiveRoleRepository::toView)
+                .all();
+    }
+
+    public Mono<Map<Long, List<RoleView>>> findRolesByUserIds(Collection<Long> ids) {
+        return databaseClient.sql("""
+                        SELECT u.id AS user_id, r.id, r.name, r.version FROM users u
+                        LEFT JOIN user_roles ur ON ur.user_id = u.id
+                        LEFT JOIN roles r ON r.id = ur.role_id
+                        WHERE u.id IN (:ids)""")
+                .bind("ids", ids)
+                .map(row -> Map.entry(row.get("user_id", Long.class),
+                        row.get("id", Long.class) == null ? List.<RoleView>of() : List.of(ReactiveRoleRepository.toView(row))))
+                .all()
+                .collect(LinkedHashMap::new, (rolesByUserId, entry) -> rolesByUserId
+                        .computeIfAbsent(entry.getKey(), userId -> new ArrayList<>())
+                        .addAll(entry.getValue()));
+    }
+
+    public Mono<Long> addRole(Long userId, Long roleId) {
+        return databaseClient.sql("""
+                        INSERT INTO user_roles (user_id, role_id)
+                        SELECT u.id, r.id FROM users u, roles r WHERE u.id = :userId AND r.id = :roleId
+                        ON CONFLICT DO NOTHING""")
+                .bind("userId", userId)
+                .bind("roleId", roleId)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> removeRole(Long userId, Long roleId) {
+        return databaseClient.sql("DELETE FROM user_roles WHERE user_id = :userId AND role_id = :roleId")
+                .bind("userId", userId)
+                .bind("roleId", roleId)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    record BulkInsert(List<Long> insertedIds, List<Integer> skipped) {
+    }
+
+    static UserView toView(Readable row) {
+        return new UserView(row.get("id", Long.class), row.get("name", String.class), row.get("email", String.class),
+                row.get("version", Long.class));
+    }
+}
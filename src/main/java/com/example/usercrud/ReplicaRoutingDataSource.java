@@ -0,0 +1,170 @@
+package com.example.usercrud;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+    private static final String PRIMARY_POSITION_QUERY = "SELECT CAST(pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0') AS bigint)";
+    private static final String REPLAY_POSITION_QUERY = """
+            SELECT pg_is_in_recovery(), CAST(pg_wal_lsn_diff(pg_last_wal_replay_lsn(), '0/0') AS bigint)
+            """;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final double maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter fallbacks;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, Duration maxLag, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.fallbacks = Counter.builder("datasource.replica.fallbacks").register(meterRegistry);
+        for (Replica replica : this.replicas) {
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("pool", replica.dataSource.getPoolName())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    public static void readFromPrimary(Runnable read) {
+        Boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(true);
+        try {
+            read.run();
+        } finally {
+            if (previous == null) {
+                PRIMARY_ONLY.remove();
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (PRIMARY_ONLY.get() != null || replicas.isEmpty()) {
+            return primary.getConnection();
+        }
+        int size = replicas.size();
+        int start = next.getAndIncrement();
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, size));
+            if (!replica.available) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                bypassSecondLevelCachePuts();
+                return connection;
+            } catch (SQLException e) {
+                replica.available = false;
+                log.warn("Replica {} unavailable, falling back", replica.dataSource.getPoolName(), e);
+            }
+        }
+        fallbacks.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+    }
+
+    @Scheduled(fixedDelayString = "${usercrud.replicas.check-interval}")
+    public void checkLag() throws SQLException {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        long primaryPosition;
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(PRIMARY_POSITION_QUERY)) {
+            resultSet.next();
+            primaryPosition = resultSet.getLong(1);
+        }
+        long sampledAt = System.nanoTime();
+        for (Replica replica : replicas) {
+            Sample newest = replica.unreplayed.peekLast();
+            if (newest == null || newest.position() < primaryPosition) {
+                replica.unreplayed.addLast(new Sample(primaryPosition, sampledAt));
+            }
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(REPLAY_POSITION_QUERY)) {
+                resultSet.next();
+                boolean standby = resultSet.getBoolean(1);
+                long replayed = resultSet.getLong(2);
+                if (!standby) {
+                    replica.unreplayed.clear();
+                }
+                while (!replica.unreplayed.isEmpty() && replica.unreplayed.peekFirst().position() <= replayed) {
+                    replica.unreplayed.removeFirst();
+                }
+                Sample oldest = replica.unreplayed.peekFirst();
+                replica.lagSeconds = oldest == null ? 0 : (System.nanoTime() - oldest.sampledAt()) / 1e9;
+                replica.available = replica.lagSeconds <= maxLagSeconds;
+            } catch (SQLException e) {
+                replica.lagSeconds = Double.NaN;
+                replica.available = false;
+                log.warn("Lag check failed for replica {}", replica.dataSource.getPoolName(), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static void bypassSecondLevelCachePuts() {
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder holder) {
+                holder.getEntityManager().unwrap(Session.class).setCacheMode(CacheMode.GET);
+            }
+        }
+    }
+
+    private record Sample(long position, long sampledAt) {
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource dataSource;
+        private final Deque<Sample> unreplayed = new ArrayDeque<>();
+        private volatile boolean available;
+        private volatile double lagSeconds = Double.NaN;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
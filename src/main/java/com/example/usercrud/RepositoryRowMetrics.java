@@ -0,0 +1,78 @@
+package com.example.usercrud;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+@Component
+public class RepositoryRowMetrics implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RepositoryRowMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(
+                            rowCounter(repositoryInformation.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    private MethodInterceptor rowCounter(String repository) {
+        return invocation -> {
+            Object result = invocation.proceed();
+            if (result instanceof Stream<?> stream) {
+                LongAdder rows = new LongAdder();
+                return stream.peek(row -> rows.increment()).onClose(() -> rows(repository, invocation).record(rows.sum()));
+            }
+            Long rows = rowCount(invocation, result);
+            if (rows != null) {
+                rows(repository, invocation).record(rows);
+            }
+            return result;
+        };
+    }
+
+    private DistributionSummary rows(String repository, MethodInvocation invocation) {
+        return DistributionSummary.builder("spring.data.repository.rows")
+                .tag("repository", repository)
+                .tag("method", invocation.getMethod().getName())
+                .register(meterRegistry.getObject());
+    }
+
+    private static Long rowCount(MethodInvocation invocation, Object result) {
+        if (result instanceof Collection<?> collection) {
+            return (long) collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return (long) map.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return (long) slice.getNumberOfElements();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1L : 0L;
+        }
+        if (result instanceof Number affected && invocation.getMethod().isAnnotationPresent(Modifying.class)) {
+            return affected.longValue();
+        }
+        return null;
+    }
+}
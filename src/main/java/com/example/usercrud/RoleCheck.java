@@ -0,0 +1,4 @@
+package com.example.usercrud;
+
+public record RoleCheck(Long userId, Long roleId) {
+}
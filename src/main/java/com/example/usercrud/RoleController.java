@@ -1,29 +1,68 @@
 package com.example.usercrud;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/roles")
 public class RoleController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MEMBERSHIP_CHUNK_SIZE = 1000;
+    private static final int MAX_LOOKUP_SIZE = 10_000;
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
     private final RoleRepository roleRepository;
+    private final UserRepository userRepository;
+    private final TableVersionRepository tableVersionRepository;
+    private final JsonArrayStreamer jsonArrayStreamer;
+    private final UserRolesCache userRolesCache;
+    private final MembershipIndex membershipIndex;
+    private final ChangeLog changeLog;
 
-    public RoleController(RoleRepository roleRepository) {
+    public RoleController(RoleRepository roleRepository, UserRepository userRepository, TableVersionRepository tableVersionRepository,
+                          JsonArrayStreamer jsonArrayStreamer, UserRolesCache userRolesCache, MembershipIndex membershipIndex,
+                          ChangeLog changeLog) {
         this.roleRepository = roleRepository;
+        this.userRepository = userRepository;
+        this.tableVersionRepository = tableVersionRepository;
+        this.jsonArrayStreamer = jsonArrayStreamer;
+        this.userRolesCache = userRolesCache;
+        this.membershipIndex = membershipIndex;
+        this.changeLog = changeLog;
     }
 
     @PostMapping
-    public ResponseEntity<Role> createRole(@RequestBody Role role) {
+    @Transactional
+    public ResponseEntity<Role> createRole(@RequestBody Role role, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         if (role.getName() == null || role.getName().isBlank()) {
             return ResponseEntity.badRequest().build();
         }
@@ -31,38 +70,132 @@ public class RoleController {
             return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
         Role savedRole = roleRepository.save(role);
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedRole);
+        tableVersionRepository.increment(TableVersion.ROLES);
+        changeLog.record(ChangeType.ROLE_CREATED, null, savedRole.getId());
+        MediaType mediaType = jsonArrayStreamer.negotiate(accept);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(mediaType)
+                .eTag(jsonArrayStreamer.strongETag(String.valueOf(savedRole.getVersion()), mediaType))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(savedRole);
+    }
+
+    @GetMapping(params = {"!after", "!limit", "!withCounts", "!ids"})
+    public ResponseEntity<StreamingResponseBody> getAllRoles(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                             WebRequest request) {
+        MediaType mediaType = jsonArrayStreamer.negotiate(accept);
+        String eTag = jsonArrayStreamer.eTag(tableVersionRepository.currentETag(TableVersion.ROLES), mediaType);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .eTag(eTag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(jsonArrayStreamer.stream(roleRepository::streamAll, mediaType));
     }
 
     @GetMapping
-    public List<Role> getAllRoles() {
-        return roleRepository.findAll();
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<RoleView>> getRolesPage(@RequestParam(defaultValue = "0") long after,
+                                                   @RequestParam(defaultValue = "100") int limit,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                   WebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        MediaType mediaType = jsonArrayStreamer.negotiate(accept);
+        String eTag = jsonArrayStreamer.eTag(tableVersionRepository.currentETag(TableVersion.ROLES), mediaType);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .eTag(eTag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(roleRepository.findViewsAfter(after, Limit.of(limit)));
+    }
+
+    @GetMapping(params = "ids")
+    @Transactional(readOnly = true)
+    public ResponseEntity<LookupResult<RoleView>> getRolesByIds(@RequestParam List<Long> ids, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(jsonArrayStreamer.negotiate(accept)).varyBy(HttpHeaders.ACCEPT).body(lookup(ids));
+    }
+
+    @PostMapping("/lookup")
+    @Transactional(readOnly = true)
+    public ResponseEntity<LookupResult<RoleView>> lookupRoles(@RequestBody List<Long> ids, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(jsonArrayStreamer.negotiate(accept)).varyBy(HttpHeaders.ACCEPT).body(lookup(ids));
+    }
+
+    private LookupResult<RoleView> lookup(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        List<RoleView> found = new ArrayList<>(distinctIds.size());
+        for (int from = 0; from < distinctIds.size(); from += LOOKUP_CHUNK_SIZE) {
+            found.addAll(roleRepository.findViewsByIdIn(distinctIds.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, distinctIds.size()))));
+        }
+        return LookupResult.inRequestedOrder(distinctIds, found, RoleView::id);
+    }
+
+    @GetMapping(params = "withCounts=true")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<RoleWithMemberCount>> getRolesWithMemberCounts(@RequestParam(defaultValue = "0") long after,
+                                                                              @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(roleRepository.findViewsWithMemberCountAfter(after, Limit.of(limit)));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Role> getRoleById(@PathVariable Long id) {
-        return roleRepository.findById(id)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<RoleView> getRoleById(@PathVariable Long id, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType mediaType = jsonArrayStreamer.negotiate(accept);
+        return roleRepository.findViewById(id)
+                .map(role -> ResponseEntity.ok()
+                        .contentType(mediaType)
+                        .eTag(jsonArrayStreamer.strongETag(String.valueOf(role.version()), mediaType))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(role))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Role> updateRole(@PathVariable Long id, @RequestBody Role updateRequest) {
+    @Transactional
+    public ResponseEntity<Role> updateRole(@PathVariable Long id, @RequestBody Role updateRequest, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                           WebRequest request) {
         if (updateRequest.getName() == null || updateRequest.getName().isBlank()) {
             return ResponseEntity.badRequest().build();
         }
+        MediaType mediaType = jsonArrayStreamer.negotiate(accept);
         return roleRepository.findById(id)
                 .map(role -> {
+                    if (request.checkNotModified(jsonArrayStreamer.strongETag(String.valueOf(role.getVersion()), mediaType))) {
+                        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<Role>build();
+                    }
                     if (!role.getName().equals(updateRequest.getName()) && roleRepository.existsByName(updateRequest.getName())) {
                         return ResponseEntity.status(HttpStatus.CONFLICT).<Role>build();
                     }
                     role.setName(updateRequest.getName());
-                    return ResponseEntity.ok(roleRepository.save(role));
+                    Role savedRole = roleRepository.saveAndFlush(role);
+                    tableVersionRepository.increment(TableVersion.ROLES);
+                    changeLog.record(ChangeType.ROLE_UPDATED, null, savedRole.getId());
+                    return ResponseEntity.ok()
+                            .contentType(mediaType)
+                            .eTag(jsonArrayStreamer.strongETag(String.valueOf(savedRole.getVersion()), mediaType))
+                            .varyBy(HttpHeaders.ACCEPT)
+                            .body(savedRole);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public ResponseEntity<Void> deleteRole(@PathVariable Long id) {
         return roleRepository.findById(id)
                 .map(role -> {
@@ -70,8 +203,74 @@ public class RoleController {
                         return ResponseEntity.status(HttpStatus.CONFLICT).<Void>build();
                     }
                     roleRepository.deleteById(id);
+                    tableVersionRepository.increment(TableVersion.ROLES);
+                    changeLog.record(ChangeType.ROLE_DELETED, null, id);
                     return ResponseEntity.noContent().<Void>build();
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    @GetMapping("/{id}/members")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<UserView>> getMembers(@PathVariable Long id,
+                                                     @RequestParam(defaultValue = "0") long after,
+                                                     @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (roleRepository.findViewById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(userRepository.findMembersAfter(id, after, Limit.of(limit)));
+    }
+
+    @PostMapping("/{id}/members")
+    @Transactional
+    public ResponseEntity<MembershipChangeSummary> addMembers(@PathVariable Long id, @RequestBody List<Long> userIds) {
+        if (roleRepository.findViewById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(changeMembers(userIds, chunk -> roleRepository.addMembers(id, chunk), granted -> {
+            membershipIndex.added(id, granted);
+            changeLog.recordAll(ChangeType.ROLE_GRANTED, granted, id);
+        }));
+    }
+
+    @DeleteMapping("/{id}/members")
+    @Transactional
+    public ResponseEntity<MembershipChangeSummary> removeMembers(@PathVariable Long id, @RequestBody List<Long> userIds) {
+        if (roleRepository.findViewById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(changeMembers(userIds, chunk -> roleRepository.removeMembers(id, chunk), revoked -> {
+            membershipIndex.removed(id, revoked);
+            changeLog.recordAll(ChangeType.ROLE_REVOKED, revoked, id);
+        }));
+    }
+
+    private MembershipChangeSummary changeMembers(List<Long> userIds, Function<List<Long>, List<Long>> statement, Consumer<List<Long>> onChanged) {
+        List<Long> distinctIds = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        int found = 0;
+        int changed = 0;
+        for (int from = 0; from < distinctIds.size(); from += MEMBERSHIP_CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + MEMBERSHIP_CHUNK_SIZE, distinctIds.size()));
+            found += userRepository.findExistingIds(chunk).size();
+            List<Long> affected = statement.apply(chunk);
+            changed += affected.size();
+            userRolesCache.evict(chunk);
+            onChanged.accept(affected);
+        }
+        return new MembershipChangeSummary(changed, found - changed, distinctIds.size() - found);
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Void> handleConcurrentUpdate() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class,
+            TransientDataAccessResourceException.class})
+    public ResponseEntity<Void> handleConnectionUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
 }
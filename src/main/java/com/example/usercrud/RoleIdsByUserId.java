@@ -0,0 +1,106 @@
+package com.example.usercrud;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+final class RoleIdsByUserId {
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(long[][].class);
+    private static final long EMPTY = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private volatile int size;
+    private int occupied;
+
+    long[] get(long userId) {
+        Table current = table;
+        int mask = current.keys.length - 1;
+        for (int slot = slot(userId, mask); ; slot = (slot + 1) & mask) {
+            long key = (long) KEYS.getAcquire(current.keys, slot);
+            if (key == EMPTY) {
+                return null;
+            }
+            if (key == userId) {
+                return (long[]) VALUES.getAcquire(current.values, slot);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void put(long userId, long[] roleIds) {
+        if (userId == EMPTY) {
+            throw new IllegalArgumentException("User id " + userId + " cannot be indexed");
+        }
+        Table current = table;
+        int mask = current.keys.length - 1;
+        int slot = slot(userId, mask);
+        for (long key = current.keys[slot]; key != EMPTY; key = current.keys[slot]) {
+            if (key == userId) {
+                long[] previous = current.values[slot];
+                VALUES.setRelease(current.values, slot, roleIds);
+                size += (roleIds == null ? 0 : 1) - (previous == null ? 0 : 1);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (roleIds == null) {
+            return;
+        }
+        if ((occupied + 1) * 2 > current.keys.length) {
+            resize();
+            put(userId, roleIds);
+            return;
+        }
+        VALUES.setRelease(current.values, slot, roleIds);
+        KEYS.setRelease(current.keys, slot, userId);
+        occupied++;
+        size++;
+    }
+
+    void remove(long userId) {
+        put(userId, null);
+    }
+
+    private void resize() {
+        Table current = table;
+        int capacity = MIN_CAPACITY;
+        while (capacity < size * 4) {
+            capacity <<= 1;
+        }
+        Table resized = new Table(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < current.keys.length; i++) {
+            if (current.values[i] != null) {
+                int slot = slot(current.keys[i], mask);
+                while (resized.keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                resized.keys[slot] = current.keys[i];
+                resized.values[slot] = current.values[i];
+            }
+        }
+        occupied = size;
+        table = resized;
+    }
+
+    private static int slot(long userId, int mask) {
+        long hash = userId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static final class Table {
+
+        private final long[] keys;
+        private final long[][] values;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new long[capacity][];
+        }
+    }
+}
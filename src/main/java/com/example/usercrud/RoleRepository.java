@@ -1,12 +1,61 @@
 package com.example.usercrud;
 
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface RoleRepository extends JpaRepository<Role, Long> {
 
+    @Transactional(readOnly = true)
+    default Optional<RoleView> findViewById(Long id) {
+        return findById(id).map(role -> new RoleView(role.getId(), role.getName(), role.getVersion()));
+    }
+
     boolean existsByName(String name);
 
-    @Query("SELECT COUNT(u) FROM User u JOIN u.roles r WHERE r.id = :roleId")
+    @Query(value = "SELECT count(*) FROM user_roles WHERE role_id = :roleId", nativeQuery = true)
     long countUsersByRoleId(Long roleId);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.usercrud.RoleView(r.id, r.name, r.version) FROM Role r WHERE r.id IN :ids")
+    List<RoleView> findViewsByIdIn(Collection<Long> ids);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.usercrud.RoleView(r.id, r.name, r.version) FROM Role r WHERE r.id > :after ORDER BY r.id")
+    List<RoleView> findViewsAfter(long after, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query("""
+            SELECT new com.example.usercrud.RoleWithMemberCount(r.id, r.name, COUNT(u.id)) FROM Role r LEFT JOIN r.users u
+            WHERE r.id > :after
+            GROUP BY r.id, r.name
+            ORDER BY r.id""")
+    List<RoleWithMemberCount> findViewsWithMemberCountAfter(long after, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.usercrud.RoleView(r.id, r.name, r.version) FROM Role r ORDER BY r.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<RoleView> streamAll();
+
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = UserRolesCache.QUERY_SPACE))
+    @Query(value = """
+            INSERT INTO user_roles (user_id, role_id)
+            SELECT u.id, r.id FROM users u JOIN roles r ON r.id = :roleId WHERE u.id IN (:userIds)
+            ON CONFLICT DO NOTHING
+            RETURNING user_id""", nativeQuery = true)
+    List<Long> addMembers(Long roleId, Collection<Long> userIds);
+
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = UserRolesCache.QUERY_SPACE))
+    @Query(value = "DELETE FROM user_roles WHERE role_id = :roleId AND user_id IN (:userIds) RETURNING user_id", nativeQuery = true)
+    List<Long> removeMembers(Long roleId, Collection<Long> userIds);
 }
@@ -0,0 +1,6 @@
+package com.example.usercrud;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public record RoleView(Long id, String name, @JsonIgnore Long version) {
+}
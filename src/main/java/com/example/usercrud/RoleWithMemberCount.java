@@ -0,0 +1,4 @@
+package com.example.usercrud;
+
+public record RoleWithMemberCount(Long id, String name, long memberCount) {
+}
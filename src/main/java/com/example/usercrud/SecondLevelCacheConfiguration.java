@@ -0,0 +1,47 @@
+package com.example.usercrud;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SecondLevelCacheConfiguration {
+
+    private static final Map<String, Long> REGION_SIZES = Map.of(
+            User.class.getName(), 10_000L,
+            User.class.getName() + ".roles", 10_000L,
+            Role.class.getName(), 1_000L);
+    private static final Duration EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheManager(MeterRegistry meterRegistry) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, createCacheManager(meterRegistry));
+    }
+
+    private static CacheManager createCacheManager(MeterRegistry meterRegistry) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("usercrud-second-level-" + UUID.randomUUID()), SecondLevelCacheConfiguration.class.getClassLoader());
+        REGION_SIZES.forEach((region, maximumSize) -> {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maximumSize));
+            configuration.setExpireAfterWrite(OptionalLong.of(EXPIRE_AFTER_WRITE.toNanos()));
+            configuration.setStatisticsEnabled(true);
+            JCacheMetrics.monitor(meterRegistry, cacheManager.createCache(region, configuration));
+        });
+        return cacheManager;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.usercrud;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "table_versions")
+public class TableVersion {
+
+    public static final String USERS = "users";
+    public static final String ROLES = "roles";
+
+    @Id
+    private String tableName;
+
+    private long version;
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.usercrud;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+public interface TableVersionRepository extends JpaRepository<TableVersion, String> {
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "table_versions"))
+    @Query(value = """
+            INSERT INTO table_versions (table_name, version) VALUES (:tableName, 1)
+            ON CONFLICT (table_name) DO UPDATE SET version = table_versions.version + 1""", nativeQuery = true)
+    void increment(String tableName);
+
+    default String currentETag(String tableName) {
+        return String.valueOf(findById(tableName).map(TableVersion::getVersion).orElse(0L));
+    }
+}
@@ -1,72 +1,300 @@
 package com.example.usercrud;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/users")
 public class UserController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int IMPORT_BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_IMPORT_ERRORS = 1000;
+    private static final int MAX_LOOKUP_SIZE = 10_000;
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+    static final String DUPLICATE_EMAIL = "email already exists";
+    private static final String PREFER = "Prefer";
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
+    private final TableVersionRepository tableVersionRepository;
+    private final JsonArrayStreamer jsonArrayStreamer;
+    private final UserExportStreamer userExportStreamer;
+    private final UserRolesCache userRolesCache;
+    private final MembershipWriteBehind membershipWriteBehind;
+    private final MembershipIndex membershipIndex;
+    private final ChangeLog changeLog;
+    private final ObjectReader userReader;
+    private final Validator validator;
 
-    public UserController(UserRepository userRepository, RoleRepository roleRepository) {
+    public UserController(UserRepository userRepository, RoleRepository roleRepository, TableVersionRepository tableVersionRepository,
+                          JsonArrayStreamer jsonArrayStreamer, UserExportStreamer userExportStreamer, UserRolesCache userRolesCache,
+                          MembershipWriteBehind membershipWriteBehind, MembershipIndex membershipIndex, ChangeLog changeLog,
+                          ObjectMapper objectMapper, Validator validator) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
+        this.tableVersionRepository = tableVersionRepository;
+        this.jsonArrayStreamer = jsonArrayStreamer;
+        this.userExportStreamer = userExportStreamer;
+        this.userRolesCache = userRolesCache;
+        this.membershipWriteBehind = membershipWriteBehind;
+        this.membershipIndex = membershipIndex;
+        this.changeLog = changeLog;
+        this.userReader = objectMapper.readerFor(User.class);
+        this.validator = validator;
     }
 
     @PostMapping
-    public ResponseEntity<User> createUser(@Valid @RequestBody User user) {
+    @Transactional
+    public ResponseEntity<User> createUser(@Valid @RequestBody User user, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType mediaType = jsonArrayStreamer.negotiate(accept);
         User savedUser = userRepository.save(user);
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedUser);
+        tableVersionRepository.increment(TableVersion.USERS);
+        changeLog.record(ChangeType.USER_CREATED, savedUser.getId(), null);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(mediaType)
+                .eTag(jsonArrayStreamer.strongETag(String.valueOf(savedUser.getVersion()), mediaType))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(savedUser);
+    }
+
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkImportResult> importUsers(InputStream body) throws IOException {
+        List<User> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        List<Integer> batchIndexes = new ArrayList<>(IMPORT_BATCH_SIZE);
+        List<BulkImportResult.RowError> errors = new ArrayList<>();
+        int created = 0;
+        int failed = 0;
+        int index = 0;
+        try (MappingIterator<User> rows = userReader.readValues(body)) {
+            while (rows.hasNextValue()) {
+                User user = rows.nextValue();
+                Set<ConstraintViolation<User>> violations = validator.validate(user);
+                if (violations.isEmpty()) {
+                    batch.add(user);
+                    batchIndexes.add(index);
+                } else {
+                    failed++;
+                    if (errors.size() < MAX_REPORTED_IMPORT_ERRORS) {
+                        errors.add(new BulkImportResult.RowError(index, violations.stream()
+                                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                                .sorted()
+                                .toList()));
+                    }
+                }
+                index++;
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    int skipped = insertBatch(batch, batchIndexes, errors);
+                    created += batch.size() - skipped;
+                    failed += skipped;
+                    batch.clear();
+                    batchIndexes.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            failed++;
+            errors.add(new BulkImportResult.RowError(index, List.of("malformed JSON: " + e.getOriginalMessage())));
+        }
+        if (!batch.isEmpty()) {
+            int skipped = insertBatch(batch, batchIndexes, errors);
+            created += batch.size() - skipped;
+            failed += skipped;
+        }
+        errors.sort(Comparator.comparingInt(BulkImportResult.RowError::index));
+        return ResponseEntity.ok(new BulkImportResult(created, failed, errors));
+    }
+
+    private int insertBatch(List<User> batch, List<Integer> batchIndexes, List<BulkImportResult.RowError> errors) {
+        List<Integer> skipped = userRepository.insertAll(batch);
+        for (int position : skipped) {
+            if (errors.size() < MAX_REPORTED_IMPORT_ERRORS) {
+                errors.add(new BulkImportResult.RowError(batchIndexes.get(position), List.of(DUPLICATE_EMAIL)));
+            }
+        }
+        return skipped.size();
+    }
+
+    @GetMapping(params = {"!after", "!limit", "!q", "!email", "!ids"})
+    public ResponseEntity<StreamingResponseBody> getAllUsers(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                             WebRequest request) {
+        MediaType mediaType = jsonArrayStreamer.negotiate(accept);
+        String eTag = jsonArrayStreamer.eTag(tableVersionRepository.currentETag(TableVersion.USERS), mediaType);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .eTag(eTag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(jsonArrayStreamer.stream(userRepository::streamAll, mediaType));
     }
 
     @GetMapping
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<UserView>> getUsersPage(@RequestParam(defaultValue = "0") long after,
+                                                   @RequestParam(defaultValue = "100") int limit,
+                                                   @RequestParam(required = false) String q,
+                                                   @RequestParam(required = false) String email,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                   WebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        MediaType mediaType = jsonArrayStreamer.negotiate(accept);
+        String eTag = jsonArrayStreamer.eTag(tableVersionRepository.currentETag(TableVersion.USERS), mediaType);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        List<UserView> users;
+        if (email != null) {
+            users = userRepository.searchByEmail(email, containsPattern(q), after, Limit.of(limit));
+        } else if (q != null) {
+            users = userRepository.searchByName(containsPattern(q), after, Limit.of(limit));
+        } else {
+            users = userRepository.findViewsAfter(after, Limit.of(limit));
+        }
+        return ResponseEntity.ok().contentType(mediaType).eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(users);
+    }
+
+    @GetMapping(params = "ids")
+    @Transactional(readOnly = true)
+    public ResponseEntity<LookupResult<UserView>> getUsersByIds(@RequestParam List<Long> ids, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(jsonArrayStreamer.negotiate(accept)).varyBy(HttpHeaders.ACCEPT).body(lookup(ids));
+    }
+
+    @PostMapping("/lookup")
+    @Transactional(readOnly = true)
+    public ResponseEntity<LookupResult<UserView>> lookupUsers(@RequestBody List<Long> ids, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(jsonArrayStreamer.negotiate(accept)).varyBy(HttpHeaders.ACCEPT).body(lookup(ids));
+    }
+
+    private LookupResult<UserView> lookup(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        List<UserView> found = new ArrayList<>(distinctIds.size());
+        for (int from = 0; from < distinctIds.size(); from += LOOKUP_CHUNK_SIZE) {
+            found.addAll(userRepository.findViewsByIdIn(distinctIds.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, distinctIds.size()))));
+        }
+        return LookupResult.inRequestedOrder(distinctIds, found, UserView::id);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "ndjson") String format,
+                                                             @RequestParam(defaultValue = "false") boolean gzip) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return switch (format) {
+            case "ndjson" -> response.contentType(MediaType.APPLICATION_NDJSON).body(userExportStreamer.ndjson(gzip));
+            case "csv" -> response.contentType(TEXT_CSV).body(userExportStreamer.csv(gzip));
+            default -> ResponseEntity.badRequest().build();
+        };
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
-        return userRepository.findById(id)
-                .map(ResponseEntity::ok)
+    @Transactional(readOnly = true)
+    public ResponseEntity<UserView> getUserById(@PathVariable Long id, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType mediaType = jsonArrayStreamer.negotiate(accept);
+        return userRepository.findViewById(id)
+                .map(user -> ResponseEntity.ok()
+                        .contentType(mediaType)
+                        .eTag(jsonArrayStreamer.strongETag(String.valueOf(user.version()), mediaType))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(user))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User updateRequest) {
+    @Transactional
+    public ResponseEntity<User> updateUser(@PathVariable Long id, @Validated(User.PartialUpdate.class) @RequestBody User updateRequest, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                           WebRequest request) {
+        MediaType mediaType = jsonArrayStreamer.negotiate(accept);
         return userRepository.findById(id)
                 .map(user -> {
+                    if (request.checkNotModified(jsonArrayStreamer.strongETag(String.valueOf(user.getVersion()), mediaType))) {
+                        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<User>build();
+                    }
                     if (updateRequest.getName() != null) {
                         user.setName(updateRequest.getName());
                     }
                     if (updateRequest.getEmail() != null) {
                         user.setEmail(updateRequest.getEmail());
                     }
-                    return ResponseEntity.ok(userRepository.save(user));
+                    User savedUser = userRepository.saveAndFlush(user);
+                    tableVersionRepository.increment(TableVersion.USERS);
+                    changeLog.record(ChangeType.USER_UPDATED, savedUser.getId(), null);
+                    return ResponseEntity.ok()
+                            .contentType(mediaType)
+                            .eTag(jsonArrayStreamer.strongETag(String.valueOf(savedUser.getVersion()), mediaType))
+                            .varyBy(HttpHeaders.ACCEPT)
+                            .body(savedUser);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
         if (!userRepository.existsById(id)) {
             return ResponseEntity.notFound().build();
         }
         userRepository.deleteById(id);
+        membershipIndex.userDeleted(id);
+        tableVersionRepository.increment(TableVersion.USERS);
+        changeLog.record(ChangeType.USER_DELETED, id, null);
         return ResponseEntity.noContent().build();
     }
 
@@ -81,45 +309,113 @@ public class UserController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/roles")
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<Long, Set<Role>>> getRolesByUserIds(@RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<Long, Set<Role>> rolesByUserId = new LinkedHashMap<>();
+        for (User user : userRepository.findWithRolesByIdIn(ids)) {
+            rolesByUserId.put(user.getId(), new HashSet<>(user.getRoles()));
+        }
+        return ResponseEntity.ok(rolesByUserId);
+    }
+
+    @GetMapping("/{userId}/roles/{roleId}")
+    public ResponseEntity<Void> hasRole(@PathVariable long userId, @PathVariable long roleId) {
+        return membershipIndex.hasRole(userId, roleId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/role-checks")
+    public ResponseEntity<List<Boolean>> checkRoles(@RequestBody List<RoleCheck> checks) {
+        if (checks.isEmpty() || checks.size() > MAX_LOOKUP_SIZE
+                || checks.stream().anyMatch(check -> check == null || check.userId() == null || check.roleId() == null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Boolean> results = new ArrayList<>(checks.size());
+        for (RoleCheck check : checks) {
+            results.add(membershipIndex.hasRole(check.userId(), check.roleId()));
+        }
+        return ResponseEntity.ok(results);
+    }
+
     @PostMapping("/{userId}/roles/{roleId}")
     @Transactional
-    public ResponseEntity<Role> addRoleToUser(@PathVariable Long userId, @PathVariable Long roleId) {
-        var userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-        var roleOpt = roleRepository.findById(roleId);
-        if (roleOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<RoleView> addRoleToUser(@PathVariable Long userId, @PathVariable Long roleId,
+                                              @RequestHeader(value = PREFER, required = false) String prefer) {
+        if (respondAsync(prefer)) {
+            return acceptMembershipChange(userId, roleId, true);
         }
-        User user = userOpt.get();
-        Role role = roleOpt.get();
-        if (user.getRoles().contains(role)) {
+        membershipWriteBehind.discard(userId, roleId);
+        if (userRepository.addRole(userId, roleId) == 0) {
+            if (!userRepository.existsById(userId) || roleRepository.findViewById(roleId).isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
             return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
-        user.getRoles().add(role);
-        userRepository.save(user);
-        return ResponseEntity.ok(role);
+        userRolesCache.evict(List.of(userId));
+        membershipIndex.added(roleId, List.of(userId));
+        changeLog.record(ChangeType.ROLE_GRANTED, userId, roleId);
+        return ResponseEntity.ok(roleRepository.findViewById(roleId).orElseThrow());
     }
 
     @DeleteMapping("/{userId}/roles/{roleId}")
     @Transactional
-    public ResponseEntity<Void> removeRoleFromUser(@PathVariable Long userId, @PathVariable Long roleId) {
-        var userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<Void> removeRoleFromUser(@PathVariable Long userId, @PathVariable Long roleId,
+                                                   @RequestHeader(value = PREFER, required = false) String prefer) {
+        if (respondAsync(prefer)) {
+            return acceptMembershipChange(userId, roleId, false);
         }
-        var roleOpt = roleRepository.findById(roleId);
-        if (roleOpt.isEmpty()) {
+        membershipWriteBehind.discard(userId, roleId);
+        if (userRepository.removeRole(userId, roleId) == 0) {
             return ResponseEntity.notFound().build();
         }
-        User user = userOpt.get();
-        Role role = roleOpt.get();
-        if (!user.getRoles().contains(role)) {
+        userRolesCache.evict(List.of(userId));
+        membershipIndex.removed(roleId, List.of(userId));
+        changeLog.record(ChangeType.ROLE_REVOKED, userId, roleId);
+        return ResponseEntity.noContent().build();
+    }
+
+    private <T> ResponseEntity<T> acceptMembershipChange(Long userId, Long roleId, boolean add) {
+        if (!userRepository.existsById(userId) || roleRepository.findViewById(roleId).isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-        user.getRoles().remove(role);
-        userRepository.save(user);
-        return ResponseEntity.noContent().build();
+        if (!membershipWriteBehind.offer(userId, roleId, add)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+        return ResponseEntity.accepted().header(PREFERENCE_APPLIED, RESPOND_ASYNC).build();
+    }
+
+    private static boolean respondAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            String token = preference.split("[;=]", 2)[0].trim();
+            if (token.equalsIgnoreCase(RESPOND_ASYNC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String containsPattern(String q) {
+        if (q == null) {
+            return "%";
+        }
+        String escaped = q.toLowerCase(Locale.ROOT).replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        return "%" + escaped + "%";
+    }
+
+    @ExceptionHandler({ObjectOptimisticLockingFailureException.class, DataIntegrityViolationException.class})
+    public ResponseEntity<Void> handleConflict() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class,
+            TransientDataAccessResourceException.class})
+    public ResponseEntity<Void> handleConnectionUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
     }
 }
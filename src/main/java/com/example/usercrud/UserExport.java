@@ -0,0 +1,6 @@
+package com.example.usercrud;
+
+import java.util.List;
+
+public record UserExport(Long id, String name, String email, List<RoleView> roles) {
+}
@@ -0,0 +1,102 @@
+package com.example.usercrud;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@Component
+@Profile("!reactive")
+public class UserExportStreamer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "id,name,email,role_id,role_name\n";
+
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter rowWriter;
+
+    public UserExportStreamer(UserRepository userRepository, ObjectMapper objectMapper) {
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public StreamingResponseBody ndjson(boolean gzip) {
+        return outputStream -> {
+            OutputStream out = wrap(outputStream, gzip);
+            try (JsonGenerator generator = objectMapper.createGenerator(out).setRootValueSeparator(null)) {
+                userRepository.forEachWithRoles(user -> {
+                    try {
+                        rowWriter.writeValue(generator, user);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+    }
+
+    public StreamingResponseBody csv(boolean gzip) {
+        return outputStream -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(wrap(outputStream, gzip), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                writer.write(CSV_HEADER);
+                userRepository.forEachWithRoles(user -> {
+                    try {
+                        if (user.roles().isEmpty()) {
+                            writeCsvRow(writer, user, null);
+                        }
+                        for (RoleView role : user.roles()) {
+                            writeCsvRow(writer, user, role);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+    }
+
+    private static OutputStream wrap(OutputStream outputStream, boolean gzip) throws IOException {
+        return gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : outputStream;
+    }
+
+    private static void writeCsvRow(Writer writer, UserExport user, RoleView role) throws IOException {
+        writer.write(String.valueOf(user.id()));
+        writer.write(',');
+        writer.write(csvField(user.name()));
+        writer.write(',');
+        writer.write(csvField(user.email()));
+        writer.write(',');
+        if (role != null) {
+            writer.write(String.valueOf(role.id()));
+            writer.write(',');
+            writer.write(csvField(role.name()));
+        } else {
+            writer.write(',');
+        }
+        writer.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.usercrud;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+public interface UserJdbcRepository {
+
+    List<Integer> insertAll(List<User> users);
+
+    void forEachWithRoles(Consumer<UserExport> action);
+
+    void forEachUserRoleIds(ObjLongConsumer<long[]> action);
+
+    void useCustomPlans();
+}
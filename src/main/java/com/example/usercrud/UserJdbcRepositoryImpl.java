@@ -0,0 +1,136 @@
+package com.example.usercrud;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+class UserJdbcRepositoryImpl implements UserJdbcRepository {
+
+    private static final String INSERT_ALL_QUERY = """
+            WITH input AS (
+                SELECT name, email, position
+                FROM unnest(CAST(? AS text[]), CAST(? AS text[])) WITH ORDINALITY AS input (name, email, position)
+            ), inserted AS (
+                INSERT INTO users (name, email)
+                SELECT name, email FROM input ORDER BY position
+                ON CONFLICT ((lower(email))) DO NOTHING
+                RETURNING id, lower(email) AS email_key
+            )
+            SELECT CAST(i.position - 1 AS integer) AS position, n.id FROM input i
+            LEFT JOIN inserted n ON n.email_key = lower(i.email)
+                AND NOT EXISTS (SELECT 1 FROM input earlier WHERE lower(earlier.email) = lower(i.email) AND earlier.position < i.position)
+            ORDER BY i.position
+            """;
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final String EXPORT_QUERY = """
+            SELECT u.id, u.name, u.email, r.id AS role_id, r.name AS role_name
+            FROM users u
+            LEFT JOIN user_roles ur ON ur.user_id = u.id
+            LEFT JOIN roles r ON r.id = ur.role_id
+            ORDER BY u.id, ur.role_id
+            """;
+    private static final String MEMBERSHIP_QUERY = "SELECT user_id, role_id FROM user_roles ORDER BY user_id, role_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TableVersionRepository tableVersionRepository;
+    private final ObjectProvider<ChangeLog> changeLog;
+
+    UserJdbcRepositoryImpl(JdbcTemplate jdbcTemplate, TableVersionRepository tableVersionRepository, ObjectProvider<ChangeLog> changeLog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableVersionRepository = tableVersionRepository;
+        this.changeLog = changeLog;
+    }
+
+    @Override
+    @Transactional
+    public List<Integer> insertAll(List<User> users) {
+        List<Integer> skipped = new ArrayList<>();
+        List<Long> insertedIds = new ArrayList<>(users.size());
+        jdbcTemplate.query(INSERT_ALL_QUERY, (RowCallbackHandler) resultSet -> {
+            long id = resultSet.getLong("id");
+            if (resultSet.wasNull()) {
+                skipped.add(resultSet.getInt("position"));
+            } else {
+                insertedIds.add(id);
+            }
+        }, users.stream().map(User::getName).toArray(String[]::new), users.stream().map(User::getEmail).toArray(String[]::new));
+        tableVersionRepository.increment(TableVersion.USERS);
+        changeLog.ifAvailable(log -> log.recordAll(ChangeType.USER_CREATED, insertedIds, null));
+        return skipped;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachWithRoles(Consumer<UserExport> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            return statement;
+        }, (ResultSetExtractor<Void>) resultSet -> {
+            UserExport current = null;
+            while (resultSet.next()) {
+                long id = resultSet.getLong("id");
+                if (current == null || current.id() != id) {
+                    if (current != null) {
+                        action.accept(current);
+                    }
+                    current = new UserExport(id, resultSet.getString("name"), resultSet.getString("email"), new ArrayList<>());
+                }
+                long roleId = resultSet.getLong("role_id");
+                if (!resultSet.wasNull()) {
+                    current.roles().add(new RoleView(roleId, resultSet.getString("role_name"), null));
+                }
+            }
+            if (current != null) {
+                action.accept(current);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUserRoleIds(ObjLongConsumer<long[]> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(MEMBERSHIP_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            return statement;
+        }, (ResultSetExtractor<Void>) resultSet -> {
+            long userId = 0;
+            long[] roleIds = new long[8];
+            int count = 0;
+            while (resultSet.next()) {
+                long id = resultSet.getLong(1);
+                if (count > 0 && id != userId) {
+                    action.accept(Arrays.copyOf(roleIds, count), userId);
+                    count = 0;
+                }
+                if (count == roleIds.length) {
+                    roleIds = Arrays.copyOf(roleIds, count * 2);
+                }
+                userId = id;
+                roleIds[count++] = resultSet.getLong(2);
+            }
+            if (count > 0) {
+                action.accept(Arrays.copyOf(roleIds, count), userId);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void useCustomPlans() {
+        jdbcTemplate.execute("SET LOCAL plan_cache_mode = force_custom_plan");
+    }
+}
@@ -1,6 +1,91 @@
 package com.example.usercrud;
 
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserJdbcRepository {
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.usercrud.UserView(u.id, u.name, u.email, u.version) FROM User u WHERE u.id = :id")
+    Optional<UserView> findViewById(Long id);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.usercrud.UserView(u.id, u.name, u.email, u.version) FROM User u WHERE u.id IN :ids")
+    List<UserView> findViewsByIdIn(Collection<Long> ids);
+
+    @Transactional(readOnly = true)
+    @Query("""
+            SELECT new com.example.usercrud.UserView(u.id, u.name, u.email, u.version) FROM User u
+            WHERE u.id > :after
+            ORDER BY u.id""")
+    List<UserView> findViewsAfter(long after, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query("""
+            SELECT new com.example.usercrud.UserView(u.id, u.name, u.email, u.version) FROM User u JOIN u.roles r
+            WHERE r.id = :roleId AND u.id > :after
+            ORDER BY u.id""")
+    List<UserView> findMembersAfter(Long roleId, long after, Limit limit);
+
+    @Transactional(readOnly = true)
+    default List<UserView> searchByName(String namePattern, long after, Limit limit) {
+        useCustomPlans();
+        return findViewsByNameLike(namePattern, after, limit);
+    }
+
+    @Transactional(readOnly = true)
+    default List<UserView> searchByEmail(String email, String namePattern, long after, Limit limit) {
+        useCustomPlans();
+        return findViewsByEmailAndNameLike(email, namePattern, after, limit);
+    }
+
+    @Query("""
+            SELECT new com.example.usercrud.UserView(u.id, u.name, u.email, u.version) FROM User u
+            WHERE LOWER(u.name) LIKE :namePattern ESCAPE '!' AND u.id > :after
+            ORDER BY u.id""")
+    List<UserView> findViewsByNameLike(String namePattern, long after, Limit limit);
+
+    @Query("""
+            SELECT new com.example.usercrud.UserView(u.id, u.name, u.email, u.version) FROM User u
+            WHERE LOWER(u.email) = LOWER(:email) AND LOWER(u.name) LIKE :namePattern ESCAPE '!' AND u.id > :after
+            ORDER BY u.id""")
+    List<UserView> findViewsByEmailAndNameLike(String email, String namePattern, long after, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.example.usercrud.UserView(u.id, u.name, u.email, u.version) FROM User u ORDER BY u.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<UserView> streamAll();
+
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.id IN :ids")
+    List<User> findWithRolesByIdIn(Collection<Long> ids);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = UserRolesCache.QUERY_SPACE))
+    @Query(value = """
+            INSERT INTO user_roles (user_id, role_id)
+            SELECT u.id, r.id FROM users u, roles r WHERE u.id = :userId AND r.id = :roleId
+            ON CONFLICT DO NOTHING""", nativeQuery = true)
+    int addRole(Long userId, Long roleId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = UserRolesCache.QUERY_SPACE))
+    @Query(value = "DELETE FROM user_roles WHERE user_id = :userId AND role_id = :roleId", nativeQuery = true)
+    int removeRole(Long userId, Long roleId);
+
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM user_roles WHERE user_id = :userId AND role_id = :roleId)", nativeQuery = true)
+    boolean hasRole(Long userId, Long roleId);
 }
@@ -0,0 +1,55 @@
+package com.example.usercrud;
+
+import jakarta.persistence.EntityManagerFactory;
+import java.util.Collection;
+import org.hibernate.Cache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+public class UserRolesCache {
+
+    static final String QUERY_SPACE = "user_roles_by_user";
+
+    private static final String REGION = User.class.getName() + ".roles";
+
+    private final Cache cache;
+
+    public UserRolesCache(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+
+    public void evict(Collection<Long> userIds) {
+        evictNow(userIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictNow(userIds);
+                }
+            });
+        }
+    }
+
+    public void evictUser(Long userId) {
+        cache.evictEntityData(User.class, userId);
+        cache.evictCollectionData(REGION, userId);
+    }
+
+    public void evictRole(Long roleId) {
+        cache.evictEntityData(Role.class, roleId);
+    }
+
+    public void evictAll() {
+        cache.evictEntityData(User.class);
+        cache.evictEntityData(Role.class);
+        cache.evictCollectionData(REGION);
+    }
+
+    private void evictNow(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            cache.evictCollectionData(REGION, userId);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.usercrud;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public record UserView(Long id, String name, String email, @JsonIgnore Long version) {
+}
@@ -0,0 +1,29 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TABLE users (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name varchar(255) NOT NULL,
+    email varchar(255) NOT NULL,
+    version bigint DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE roles (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name varchar(255) UNIQUE,
+    version bigint DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE user_roles (
+    user_id bigint NOT NULL REFERENCES users (id),
+    role_id bigint NOT NULL REFERENCES roles (id),
+    PRIMARY KEY (user_id, role_id)
+);
+
+CREATE TABLE table_versions (
+    table_name varchar(255) PRIMARY KEY,
+    version bigint NOT NULL
+);
+
+CREATE INDEX users_lower_name_trgm_idx ON users USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX users_lower_email_idx ON users (lower(email));
+CREATE INDEX user_roles_role_id_user_id_idx ON user_roles (role_id, user_id);
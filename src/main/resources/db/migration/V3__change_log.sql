@@ -0,0 +1,9 @@
+CREATE TABLE changes (
+    seq bigserial PRIMARY KEY,
+    type varchar(32) NOT NULL,
+    user_id bigint,
+    role_id bigint,
+    occurred_at timestamptz NOT NULL DEFAULT now()
+);
+
+CREATE INDEX changes_occurred_at_idx ON changes (occurred_at);
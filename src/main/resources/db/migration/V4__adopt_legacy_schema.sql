@@ -0,0 +1,12 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
+ALTER TABLE roles ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
+
+CREATE TABLE IF NOT EXISTS table_versions (
+    table_name varchar(255) PRIMARY KEY,
+    version bigint NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS users_lower_name_trgm_idx ON users USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS user_roles_role_id_user_id_idx ON user_roles (role_id, user_id);
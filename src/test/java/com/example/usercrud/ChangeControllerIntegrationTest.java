@@ -0,0 +1,246 @@
+package com.example.usercrud;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+class ChangeControllerIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private String baseUrl;
+    private long head;
+
+    @BeforeEach
+    void setUp() {
+        baseUrl = "http://localhost:" + port;
+        head = restTemplate.getForObject(baseUrl + "/changes/head", ChangeBatch.class).next();
+    }
+
+    @Test
+    void getChanges_returnsUserRoleAndMembershipMutationsInCommitOrder() {
+        User user = createUser("John", "john-feed@example.com");
+        Role role = restTemplate.postForEntity(baseUrl + "/roles", role("feed-admin"), Role.class).getBody();
+        restTemplate.postForEntity(baseUrl + "/users/" + user.getId() + "/roles/" + role.getId(), null, Role.class);
+        user.setName("Johnny");
+        restTemplate.put(baseUrl + "/users/" + user.getId(), user);
+        restTemplate.delete(baseUrl + "/users/" + user.getId() + "/roles/" + role.getId());
+        restTemplate.delete(baseUrl + "/users/" + user.getId());
+
+        ResponseEntity<ChangeBatch> response = restTemplate.getForEntity(baseUrl + "/changes?since=" + head, ChangeBatch.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().changes())
+                .extracting(Change::type, Change::userId, Change::roleId)
+                .containsExactly(
+                        tuple(ChangeType.USER_CREATED, user.getId(), null),
+                        tuple(ChangeType.ROLE_CREATED, null, role.getId()),
+                        tuple(ChangeType.ROLE_GRANTED, user.getId(), role.getId()),
+                        tuple(ChangeType.USER_UPDATED, user.getId(), null),
+                        tuple(ChangeType.ROLE_REVOKED, user.getId(), role.getId()),
+                        tuple(ChangeType.USER_DELETED, user.getId(), null));
+        assertThat(response.getBody().changes()).extracting(Change::seq).isSorted();
+        assertThat(response.getBody().next()).isEqualTo(response.getBody().changes().get(5).seq());
+    }
+
+    @Test
+    void getChanges_withLimit_resumesFromNext() {
+        createUser("Ann", "ann-feed@example.com");
+        createUser("Bob", "bob-feed@example.com");
+
+        ChangeBatch first = restTemplate.getForObject(baseUrl + "/changes?since=" + head + "&limit=1", ChangeBatch.class);
+        ChangeBatch second = restTemplate.getForObject(baseUrl + "/changes?since=" + first.next() + "&limit=1", ChangeBatch.class);
+        ChangeBatch caughtUp = restTemplate.getForObject(baseUrl + "/changes?since=" + second.next(), ChangeBatch.class);
+
+        assertThat(first.changes()).hasSize(1);
+        assertThat(second.changes()).hasSize(1);
+        assertThat(second.changes().get(0).seq()).isGreaterThan(first.next());
+        assertThat(caughtUp.changes()).isEmpty();
+        assertThat(caughtUp.next()).isEqualTo(second.next());
+    }
+
+    @Test
+    void getChanges_includesBulkImportAndRoleMemberChangesButNotRolledBackOnes() {
+        Role role = restTemplate.postForEntity(baseUrl + "/roles", role("feed-bulk"), Role.class).getBody();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+        restTemplate.postForEntity(baseUrl + "/users/bulk", new HttpEntity<>("""
+                {"name":"Cat","email":"cat-feed@example.com"}
+                {"name":"Cat again","email":"CAT-feed@example.com"}
+                {"name":"Dan","email":"dan-feed@example.com"}
+                """, headers), BulkImportResult.class);
+        ResponseEntity<Void> duplicate = restTemplate.postForEntity(baseUrl + "/users", user("Cat", "cat-feed@example.com"), Void.class);
+        List<Long> importedIds = restTemplate.getForObject(baseUrl + "/changes?since=" + head, ChangeBatch.class).changes().stream()
+                .filter(change -> change.type() == ChangeType.USER_CREATED)
+                .map(Change::userId)
+                .toList();
+        restTemplate.postForEntity(baseUrl + "/roles/" + role.getId() + "/members", List.of(importedIds.get(0), 999_999L), MembershipChangeSummary.class);
+
+        ChangeBatch batch = restTemplate.getForObject(baseUrl + "/changes?since=" + head, ChangeBatch.class);
+
+        assertThat(duplicate.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(importedIds).hasSize(2);
+        assertThat(batch.changes())
+                .extracting(Change::type, Change::userId, Change::roleId)
+                .containsExactly(
+                        tuple(ChangeType.ROLE_CREATED, null, role.getId()),
+                        tuple(ChangeType.USER_CREATED, importedIds.get(0), null),
+                        tuple(ChangeType.USER_CREATED, importedIds.get(1), null),
+                        tuple(ChangeType.ROLE_GRANTED, importedIds.get(0), role.getId()));
+    }
+
+    @Test
+    void getChanges_recordsMemberChangesOnlyForMembershipsThatChanged() {
+        Role role = restTemplate.postForEntity(baseUrl + "/roles", role("feed-members"), Role.class).getBody();
+        User ann = createUser("Ann", "ann-members@example.com");
+        User bob = createUser("Bob", "bob-members@example.com");
+        String membersUrl = baseUrl + "/roles/" + role.getId() + "/members";
+        restTemplate.postForEntity(membersUrl, List.of(ann.getId()), MembershipChangeSummary.class);
+        long afterFirstGrant = restTemplate.getForObject(baseUrl + "/changes/head", ChangeBatch.class).next();
+
+        restTemplate.postForEntity(membersUrl, List.of(ann.getId(), bob.getId()), MembershipChangeSummary.class);
+        restTemplate.exchange(membersUrl, HttpMethod.DELETE, new HttpEntity<>(List.of(bob.getId())), MembershipChangeSummary.class);
+        restTemplate.exchange(membersUrl, HttpMethod.DELETE, new HttpEntity<>(List.of(bob.getId())), MembershipChangeSummary.class);
+
+        assertThat(restTemplate.getForObject(baseUrl + "/changes?since=" + afterFirstGrant, ChangeBatch.class).changes())
+                .extracting(Change::type, Change::userId, Change::roleId)
+                .containsExactly(
+                        tuple(ChangeType.ROLE_GRANTED, bob.getId(), role.getId()),
+                        tuple(ChangeType.ROLE_REVOKED, bob.getId(), role.getId()));
+    }
+
+    @Test
+    void getChanges_holdsBackChangesCommittedAfterAnEarlierSequenceStillInFlight() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT pg_current_xact_id()");
+                statement.execute("INSERT INTO changes (type, role_id) VALUES ('ROLE_CREATED', 0)");
+            }
+            User user = createUser("Gil", "gil-feed@example.com");
+
+            assertThat(restTemplate.getForObject(baseUrl + "/changes?since=" + head, ChangeBatch.class).changes()).isEmpty();
+            assertThat(restTemplate.getForObject(baseUrl + "/changes/head", ChangeBatch.class).next()).isEqualTo(head);
+
+            connection.commit();
+
+            assertThat(restTemplate.getForObject(baseUrl + "/changes?since=" + head, ChangeBatch.class).changes())
+                    .extracting(Change::type, Change::userId, Change::roleId)
+                    .containsExactly(
+                            tuple(ChangeType.ROLE_CREATED, null, 0L),
+                            tuple(ChangeType.USER_CREATED, user.getId(), null));
+        }
+    }
+
+    @Test
+    void getChanges_withWait_completesWhenAChangeIsCommitted() throws Exception {
+        CompletableFuture<ChangeBatch> pending = CompletableFuture.supplyAsync(
+                () -> restTemplate.getForObject(baseUrl + "/changes?since=" + head + "&wait=30", ChangeBatch.class));
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertThat(pending).isNotDone();
+
+        Role role = restTemplate.postForEntity(baseUrl + "/roles", role("feed-waiter"), Role.class).getBody();
+
+        ChangeBatch batch = pending.get(10, TimeUnit.SECONDS);
+        assertThat(batch.changes()).extracting(Change::type, Change::roleId).containsExactly(tuple(ChangeType.ROLE_CREATED, role.getId()));
+    }
+
+    @Test
+    void getChanges_withWaitAndNoChanges_returnsEmptyBatchAfterTimeout() {
+        long started = System.nanoTime();
+
+        ChangeBatch batch = restTemplate.getForObject(baseUrl + "/changes?since=" + head + "&wait=1", ChangeBatch.class);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofSeconds(1));
+        assertThat(batch.changes()).isEmpty();
+        assertThat(batch.next()).isEqualTo(head);
+    }
+
+    @Test
+    void getChanges_withInvalidParameters_returns400() {
+        assertThat(restTemplate.getForEntity(baseUrl + "/changes?since=-1", String.class).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.getForEntity(baseUrl + "/changes?since=0&limit=0", String.class).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.getForEntity(baseUrl + "/changes?since=0&wait=61", String.class).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getChanges_sincePurgedSequence_returns410() {
+        createUser("Eve", "eve-feed@example.com");
+        createUser("Fay", "fay-feed@example.com");
+        jdbcTemplate.update("UPDATE changes SET occurred_at = now() - interval '30 days'");
+
+        changeLog.purge();
+
+        long newest = restTemplate.getForObject(baseUrl + "/changes/head", ChangeBatch.class).next();
+        assertThat(restTemplate.getForEntity(baseUrl + "/changes?since=" + head, String.class).getStatusCode()).isEqualTo(HttpStatus.GONE);
+        assertThat(restTemplate.getForEntity(baseUrl + "/changes?since=" + (newest - 1), ChangeBatch.class).getBody().changes())
+                .extracting(Change::seq).containsExactly(newest);
+    }
+
+    private User createUser(String name, String email) {
+        return restTemplate.postForEntity(baseUrl + "/users", user(name, email), User.class).getBody();
+    }
+
+    private static User user(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        return user;
+    }
+
+    private static Role role(String name) {
+        Role role = new Role();
+        role.setName(name);
+        return role;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.usercrud;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.datasource.hikari.connection-timeout=250")
+@Testcontainers
+class ConnectionPoolExhaustionIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() {
+        baseUrl = "http://localhost:" + port;
+        primaryDataSource.getHikariConfigMXBean().setMinimumIdle(1);
+        primaryDataSource.getHikariConfigMXBean().setMaximumPoolSize(1);
+        primaryDataSource.getHikariPoolMXBean().softEvictConnections();
+    }
+
+    @Test
+    void readsWhilePoolIsExhausted_return503WithRetryAfter() throws Exception {
+        User user = new User();
+        user.setName("Pat");
+        user.setEmail("pat-pool@example.com");
+        User saved = userRepository.save(user);
+
+        try (Connection held = primaryDataSource.getConnection()) {
+            assertUnavailable(restTemplate.getForEntity(baseUrl + "/users/" + saved.getId(), String.class));
+            assertUnavailable(restTemplate.getForEntity(baseUrl + "/users?limit=10", String.class));
+            assertUnavailable(restTemplate.getForEntity(baseUrl + "/roles/1", String.class));
+        }
+
+        assertThat(restTemplate.getForEntity(baseUrl + "/users/" + saved.getId(), String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void writesWhilePoolIsExhausted_return503WithRetryAfterAndPersistNothing() throws Exception {
+        User user = new User();
+        user.setName("Quinn");
+        user.setEmail("quinn-pool@example.com");
+        Role role = new Role();
+        role.setName("pool-writers");
+
+        try (Connection held = primaryDataSource.getConnection()) {
+            assertUnavailable(restTemplate.postForEntity(baseUrl + "/users", user, String.class));
+            assertUnavailable(restTemplate.postForEntity(baseUrl + "/roles", role, String.class));
+        }
+
+        assertThat(restTemplate.postForEntity(baseUrl + "/users", user, String.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(restTemplate.postForEntity(baseUrl + "/roles", role, String.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    }
+
+    private static void assertUnavailable(ResponseEntity<String> response) {
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.usercrud;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+@Testcontainers
+class ReactiveApiIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":" + postgres.getFirstMappedPort()
+                + "/" + postgres.getDatabaseName());
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient.sql("TRUNCATE user_roles, users, roles").then().block();
+    }
+
+    @Test
+    void createUser_thenGetById_returnsUserWithETag() {
+        User user = new User();
+        user.setName("John Doe");
+        user.setEmail("john@example.com");
+
+        User created = webTestClient.post().uri("/users").bodyValue(user)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(User.class).returnResult().getResponseBody();
+
+        assertThat(created).isNotNull();
+        webTestClient.get().uri("/users/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("John Doe")
+                .jsonPath("$.version").doesNotExist();
+    }
+
+    @Test
+    void createUser_withMissingName_returns400() {
+        User user = new User();
+        user.setEmail("john@example.com");
+
+        webTestClient.post().uri("/users").bodyValue(user)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void importUsers_withNdjson_thenStreamAll_returnsUsersInIdOrder() {
+        String body = """
+                {"name": "John", "email": "john@example.com"}
+                {"name": "", "email": "nobody@example.com"}
+                {"name": "Jane", "email": "jane@example.com"}
+                """;
+
+        webTestClient.post().uri("/users/bulk").contentType(MediaType.APPLICATION_NDJSON).bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BulkImportResult.class)
+                .value(result -> {
+                    assertThat(result.created()).isEqualTo(2);
+                    assertThat(result.failed()).isEqualTo(1);
+                    assertThat(result.errors()).singleElement().satisfies(error -> assertThat(error.index()).isEqualTo(1));
+                });
+
+        webTestClient.get().uri("/users")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class)
+                .value(users -> assertThat(users).extracting(User::getName).containsExactly("John", "Jane"));
+    }
+
+    @Test
+    void createAndImportUsers_withTakenEmail_reportConflicts() {
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        webTestClient.post().uri("/users").bodyValue(user)
+                .exchange()
+                .expectStatus().isCreated();
+
+        user.setEmail("John@Example.com");
+        webTestClient.post().uri("/users").bodyValue(user)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        String body = """
+                {"name": "Johnny", "email": "JOHN@example.com"}
+                {"name": "Jane", "email": "jane@example.com"}
+                {"name": "Janet", "email": "jane@example.com"}
+                """;
+        webTestClient.post().uri("/users/bulk").contentType(MediaType.APPLICATION_NDJSON).bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BulkImportResult.class)
+                .value(result -> {
+                    assertThat(result.created()).isEqualTo(1);
+                    assertThat(result.failed()).isEqualTo(2);
+                    assertThat(result.errors()).extracting(BulkImportResult.RowError::index).containsExactly(0, 2);
+                });
+    }
+
+    @Test
+    void lookupUsers_returnsUsersInRequestedOrderAndReportsMissing() {
+        List<Long> ids = new ArrayList<>();
+        for (String name : List.of("John", "Jane")) {
+            User user = new User();
+            user.setName(name);
+            user.setEmail(name.toLowerCase() + "@example.com");
+            ids.add(webTestClient.post().uri("/users").bodyValue(user)
+                    .exchange()
+                    .expectBody(User.class).returnResult().getResponseBody().getId());
+        }
+
+        webTestClient.post().uri("/users/lookup").bodyValue(List.of(ids.get(1), 999L, ids.get(0)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[*].name").isEqualTo(List.of("Jane", "John"))
+                .jsonPath("$.missing").isEqualTo(List.of(999));
+
+        webTestClient.get().uri("/users?ids={ids}", ids.get(0) + "," + ids.get(1))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[*].name").isEqualTo(List.of("John", "Jane"))
+                .jsonPath("$.missing").isEmpty();
+    }
+
+    @Test
+    void getAllUsers_withMatchingIfNoneMatch_returns304() {
+        String eTag = webTestClient.get().uri("/users").exchange()
+                .expectStatus().isOk()
+                .returnResult(User.class).getResponseHeaders().getETag();
+
+        webTestClient.get().uri("/users").ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void updateUser_withStaleIfMatch_returns412() {
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User created = webTestClient.post().uri("/users").bodyValue(user)
+                .exchange()
+                .expectBody(User.class).returnResult().getResponseBody();
+
+        User update = new User();
+        update.setName("Johnny");
+        webTestClient.put().uri("/users/{id}", created.getId()).header("If-Match", "\"0\"").bodyValue(update)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"1\"");
+
+        webTestClient.put().uri("/users/{id}", created.getId()).header("If-Match", "\"0\"").bodyValue(update)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void updateUser_withNameLongerThan255Characters_returns400() {
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User created = webTestClient.post().uri("/users").bodyValue(user)
+                .exchange()
+                .expectBody(User.class).returnResult().getResponseBody();
+
+        User update = new User();
+        update.setName("J".repeat(256));
+        webTestClient.put().uri("/users/{id}", created.getId()).bodyValue(update)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void roleMembership_addCountListAndRemove() {
+        Role role = new Role();
+        role.setName("admin");
+        Role createdRole = webTestClient.post().uri("/roles").bodyValue(role)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Role.class).returnResult().getResponseBody();
+
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User createdUser = webTestClient.post().uri("/users").bodyValue(user)
+                .exchange()
+                .expectBody(User.class).returnResult().getResponseBody();
+
+        webTestClient.post().uri("/roles/{id}/members", createdRole.getId()).bodyValue(List.of(createdUser.getId(), 999L))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MembershipChangeSummary.class).isEqualTo(new MembershipChangeSummary(1, 0, 1));
+
+        webTestClient.post().uri("/users/{userId}/roles/{roleId}", createdUser.getId(), createdRole.getId())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        webTestClient.get().uri("/roles?withCounts=true")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(RoleWithMemberCount.class)
+                .value(roles -> assertThat(roles).containsExactly(new RoleWithMemberCount(createdRole.getId(), "admin", 1)));
+
+        webTestClient.get().uri("/roles/{id}/members", createdRole.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class)
+                .value(members -> assertThat(members).extracting(User::getId).containsExactly(createdUser.getId()));
+
+        webTestClient.delete().uri("/roles/{id}", createdRole.getId())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        webTestClient.delete().uri("/users/{userId}/roles/{roleId}", createdUser.getId(), createdRole.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.delete().uri("/roles/{id}", createdRole.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Test
+    void mutations_recordChangesForTheFeedInCommitOrder() {
+        long head = databaseClient.sql("SELECT coalesce(max(seq), 0) AS head FROM changes")
+                .map(row -> row.get("head", Long.class)).one().block();
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User john = webTestClient.post().uri("/users").bodyValue(user)
+                .exchange()
+                .expectBody(User.class).returnResult().getResponseBody();
+        webTestClient.post().uri("/users/bulk").contentType(MediaType.APPLICATION_NDJSON).bodyValue("""
+                        {"name": "Jane", "email": "jane@example.com"}
+                        {"name": "Johnny", "email": "JOHN@example.com"}
+                        """)
+                .exchange()
+                .expectStatus().isOk();
+        Long janeId = databaseClient.sql("SELECT id FROM users WHERE email = 'jane@example.com'")
+                .map(row -> row.get("id", Long.class)).one().block();
+        Role role = new Role();
+        role.setName("admin");
+        Role admin = webTestClient.post().uri("/roles").bodyValue(role)
+                .exchange()
+                .expectBody(Role.class).returnResult().getResponseBody();
+        webTestClient.post().uri("/roles/{id}/members", admin.getId()).bodyValue(List.of(john.getId(), janeId, 999L))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.post().uri("/roles/{id}/members", admin.getId()).bodyValue(List.of(john.getId()))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.delete().uri("/users/{userId}/roles/{roleId}", john.getId(), admin.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+        webTestClient.method(HttpMethod.DELETE).uri("/roles/{id}/members", admin.getId()).bodyValue(List.of(john.getId(), janeId))
+                .exchange()
+                .expectStatus().isOk();
+        User update = new User();
+        update.setName("Johnny");
+        webTestClient.put().uri("/users/{id}", john.getId()).bodyValue(update)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.delete().uri("/roles/{id}", admin.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+        webTestClient.delete().uri("/users/{id}", john.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        List<String> changes = databaseClient.sql("SELECT type, user_id, role_id FROM changes WHERE seq > :head ORDER BY seq")
+                .bind("head", head)
+                .map(row -> row.get("type", String.class) + " " + row.get("user_id", Long.class) + " " + row.get("role_id", Long.class))
+                .all().collectList().block();
+        assertThat(changes).containsExactly(
+                "USER_CREATED " + john.getId() + " null",
+                "USER_CREATED " + janeId + " null",
+                "ROLE_CREATED null " + admin.getId(),
+                "ROLE_GRANTED " + john.getId() + " " + admin.getId(),
+                "ROLE_GRANTED " + janeId + " " + admin.getId(),
+                "ROLE_REVOKED " + john.getId() + " " + admin.getId(),
+                "ROLE_REVOKED " + janeId + " " + admin.getId(),
+                "USER_UPDATED " + john.getId() + " null",
+                "ROLE_DELETED null " + admin.getId(),
+                "USER_DELETED " + john.getId() + " null");
+    }
+}
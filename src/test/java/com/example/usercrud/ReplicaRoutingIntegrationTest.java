@@ -0,0 +1,172 @@
+package com.example.usercrud;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "usercrud.replicas.max-lag=1s",
+        "usercrud.replicas.check-interval=100ms"})
+@Testcontainers
+class ReplicaRoutingIntegrationTest {
+
+    static Network network = Network.newNetwork();
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withNetwork(network)
+            .withNetworkAliases("primary")
+            .withCopyToContainer(Transferable.of("echo 'host replication all all scram-sha-256' >> \"$PGDATA/pg_hba.conf\""),
+                    "/docker-entrypoint-initdb.d/replication.sh");
+
+    @Container
+    static GenericContainer<?> replica = new GenericContainer<>("postgres:16-alpine")
+            .withNetwork(network)
+            .dependsOn(primary)
+            .withEnv("PGPASSWORD", "test")
+            .withExposedPorts(5432)
+            .withCreateContainerCmdModifier(cmd -> cmd.withUser("postgres").withEntrypoint("sh", "-c", """
+                    until pg_basebackup -h primary -U test -D /tmp/replica -R -X stream; do rm -rf /tmp/replica; sleep 1; done
+                    chmod 700 /tmp/replica
+                    exec postgres -D /tmp/replica
+                    """))
+            .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*", 1));
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("usercrud.replicas.urls", ReplicaRoutingIntegrationTest::replicaUrl);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String usersUrl;
+
+    @BeforeEach
+    void setUp() {
+        usersUrl = "http://localhost:" + port + "/users";
+        await().atMost(Duration.ofSeconds(10)).until(() -> readsFromStandby(true));
+    }
+
+    @AfterEach
+    void resumeReplay() throws SQLException {
+        onReplica("SELECT pg_wal_replay_resume()");
+    }
+
+    @Test
+    void readOnlyTransactions_useReplicaAndWritesUsePrimary() {
+        assertThat(readsFromStandby(true)).isTrue();
+        assertThat(readsFromStandby(false)).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT pg_is_in_recovery()", Boolean.class)).isFalse();
+    }
+
+    @Test
+    void getUserById_servesCommittedUserFromReplica() {
+        User user = restTemplate.postForEntity(usersUrl, user("Rita", "rita-replica@example.com"), User.class).getBody();
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> restTemplate.getForEntity(usersUrl + "/" + user.getId(), UserView.class).getStatusCode() == HttpStatus.OK);
+        assertThat(restTemplate.getForObject(usersUrl + "/" + user.getId(), UserView.class).email()).isEqualTo("rita-replica@example.com");
+    }
+
+    @Test
+    void replicaLaggingBeyondMaxLag_fallsBackToPrimaryUntilCaughtUp() throws SQLException {
+        onReplica("SELECT pg_wal_replay_pause()");
+        User user = restTemplate.postForEntity(usersUrl, user("Lars", "lars-replica@example.com"), User.class).getBody();
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> !readsFromStandby(true));
+        assertThat(restTemplate.getForEntity(usersUrl + "/" + user.getId(), UserView.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        onReplica("SELECT pg_wal_replay_resume()");
+        await().atMost(Duration.ofSeconds(10)).until(() -> readsFromStandby(true));
+    }
+
+    @Test
+    void readFromPrimary_keepsReadOnlyTransactionsOnPrimary() {
+        AtomicBoolean standby = new AtomicBoolean(true);
+
+        ReplicaRoutingDataSource.readFromPrimary(() -> standby.set(readsFromStandby(true)));
+
+        assertThat(standby).isFalse();
+        assertThat(readsFromStandby(true)).isTrue();
+    }
+
+    @Test
+    void getAllUsers_streamsFromPrimaryWhileReplicaIsWithinMaxLag() throws SQLException {
+        User replicated = restTemplate.postForEntity(usersUrl, user("Olga", "olga-replica@example.com"), User.class).getBody();
+        await().atMost(Duration.ofSeconds(5)).until(() -> onReplicaExists("SELECT 1 FROM users WHERE id = " + replicated.getId()));
+        onReplica("SELECT pg_wal_replay_pause()");
+        User user = restTemplate.postForEntity(usersUrl, user("Nina", "nina-replica@example.com"), User.class).getBody();
+
+        assertThat(restTemplate.getForObject(usersUrl, UserView[].class)).extracting(UserView::id).contains(user.getId());
+    }
+
+    private boolean readsFromStandby(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> jdbcTemplate.queryForObject("SELECT pg_is_in_recovery()", Boolean.class));
+    }
+
+    private static void onReplica(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(replicaUrl(), primary.getUsername(), primary.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static boolean onReplicaExists(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(replicaUrl(), primary.getUsername(), primary.getPassword());
+             Statement statement = connection.createStatement()) {
+            return statement.executeQuery(sql).next();
+        }
+    }
+
+    private static String replicaUrl() {
+        return "jdbc:postgresql://" + replica.getHost() + ":" + replica.getMappedPort(5432) + "/" + primary.getDatabaseName();
+    }
+
+    private static User user(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.usercrud;
 
+import org.hibernate.resource.jdbc.spi.StatementInspector;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,18 +8,36 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "usercrud.membership.write-behind.flush-interval=1h",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.usercrud.RoleControllerIntegrationTest$SqlRecorder"})
 @Testcontainers
 class RoleControllerIntegrationTest {
 
@@ -44,6 +63,21 @@ class RoleControllerIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MembershipWriteBehind membershipWriteBehind;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MembershipIndex membershipIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     private String rolesUrl;
     private String usersUrl;
 
@@ -129,6 +163,20 @@ class RoleControllerIntegrationTest {
         assertThat(response.getBody()).isEmpty();
     }
 
+    @Test
+    void getRolesPage_withLimit_returnsFirstRolesInIdOrder() {
+        for (String name : new String[] {"admin", "user", "auditor"}) {
+            Role role = new Role();
+            role.setName(name);
+            roleRepository.save(role);
+        }
+
+        ResponseEntity<Role[]> response = restTemplate.getForEntity(rolesUrl + "?limit=2", Role[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(Role::getName).containsExactly("admin", "user");
+    }
+
     @Test
     void getRoleById_withExistingId_returns200WithRole() {
         Role role = new Role();
@@ -142,6 +190,35 @@ class RoleControllerIntegrationTest {
         assertThat(response.getBody().getName()).isEqualTo("admin");
     }
 
+    @Test
+    void getRoleById_withMatchingIfNoneMatch_returns304() {
+        Role role = new Role();
+        role.setName("admin");
+        Role savedRole = roleRepository.save(role);
+        String roleUrl = rolesUrl + "/" + savedRole.getId();
+        String eTag = restTemplate.getForEntity(roleUrl, Role.class).getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+
+        ResponseEntity<String> response = restTemplate.exchange(roleUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void getAllRoles_withMatchingIfNoneMatch_returns304() {
+        Role role = new Role();
+        role.setName("admin");
+        restTemplate.postForEntity(rolesUrl, role, Role.class);
+        String eTag = restTemplate.getForEntity(rolesUrl, Role[].class).getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+
+        ResponseEntity<String> response = restTemplate.exchange(rolesUrl, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
     @Test
     void getRoleById_withNonExistentId_returns404() {
         ResponseEntity<String> response = restTemplate.getForEntity(rolesUrl + "/999", String.class);
@@ -149,6 +226,28 @@ class RoleControllerIntegrationTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
+    @Test
+    void getRolesByIds_returnsRolesInRequestedOrderAndReportsMissing() {
+        Role admin = new Role();
+        admin.setName("admin");
+        Role savedAdmin = roleRepository.save(admin);
+
+        Role user = new Role();
+        user.setName("user");
+        Role savedUser = roleRepository.save(user);
+
+        ResponseEntity<LookupResult<RoleView>> response = restTemplate.exchange(
+                rolesUrl + "?ids=" + savedUser.getId() + ",999," + savedAdmin.getId() + "," + savedUser.getId(),
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().items()).extracting(RoleView::name).containsExactly("user", "admin");
+        assertThat(response.getBody().missing()).containsExactly(999L);
+    }
+
     // US3: Update Role tests
 
     @Test
@@ -171,6 +270,28 @@ class RoleControllerIntegrationTest {
         assertThat(response.getBody().getName()).isEqualTo("administrator");
     }
 
+    @Test
+    void getRoleById_afterUpdate_returnsUpdatedRole() {
+        Role role = new Role();
+        role.setName("admin");
+        Role savedRole = roleRepository.save(role);
+        restTemplate.getForEntity(rolesUrl + "/" + savedRole.getId(), Role.class);
+
+        Role updateRequest = new Role();
+        updateRequest.setName("administrator");
+        restTemplate.exchange(
+                rolesUrl + "/" + savedRole.getId(),
+                HttpMethod.PUT,
+                new HttpEntity<>(updateRequest),
+                Role.class);
+
+        ResponseEntity<Role> response = restTemplate.getForEntity(rolesUrl + "/" + savedRole.getId(), Role.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getName()).isEqualTo("administrator");
+    }
+
     @Test
     void updateRole_withNonExistentId_returns404() {
         Role updateRequest = new Role();
@@ -397,6 +518,231 @@ class RoleControllerIntegrationTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
+    @Test
+    void getUserRoles_afterAddAndRemove_reflectsMembershipChanges() {
+        Role role = new Role();
+        role.setName("admin");
+        Role savedRole = roleRepository.save(role);
+
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User savedUser = userRepository.save(user);
+        String userRolesUrl = usersUrl + "/" + savedUser.getId() + "/roles";
+
+        assertThat(restTemplate.getForEntity(userRolesUrl, Role[].class).getBody()).isEmpty();
+
+        restTemplate.postForEntity(userRolesUrl + "/" + savedRole.getId(), null, Role.class);
+        assertThat(restTemplate.getForEntity(userRolesUrl, Role[].class).getBody())
+                .extracting(Role::getName).containsExactly("admin");
+
+        restTemplate.exchange(rolesUrl + "/" + savedRole.getId() + "/members", HttpMethod.DELETE,
+                new HttpEntity<>(List.of(savedUser.getId())), MembershipChangeSummary.class);
+        assertThat(restTemplate.getForEntity(userRolesUrl, Role[].class).getBody()).isEmpty();
+    }
+
+    @Test
+    void addAndRemoveRole_withRespondAsync_returns202AndAppliesLastChangeOnFlush() {
+        Role role = new Role();
+        role.setName("admin");
+        Role savedRole = roleRepository.save(role);
+
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User savedUser = userRepository.save(user);
+        String userRolesUrl = usersUrl + "/" + savedUser.getId() + "/roles";
+        HttpEntity<Void> respondAsync = new HttpEntity<>(preferRespondAsync());
+
+        ResponseEntity<Void> added = restTemplate.exchange(userRolesUrl + "/" + savedRole.getId(), HttpMethod.POST, respondAsync, Void.class);
+        ResponseEntity<Void> removed = restTemplate.exchange(userRolesUrl + "/" + savedRole.getId(), HttpMethod.DELETE, respondAsync, Void.class);
+        ResponseEntity<Void> addedAgain = restTemplate.exchange(userRolesUrl + "/" + savedRole.getId(), HttpMethod.POST, respondAsync, Void.class);
+
+        assertThat(List.of(added, removed, addedAgain)).allSatisfy(response -> {
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+            assertThat(response.getHeaders().getFirst("Preference-Applied")).isEqualTo("respond-async");
+        });
+        assertThat(membershipWriteBehind.pendingCount()).isEqualTo(1);
+        assertThat(restTemplate.getForEntity(userRolesUrl, Role[].class).getBody()).isEmpty();
+
+        membershipWriteBehind.flush();
+
+        assertThat(membershipWriteBehind.pendingCount()).isZero();
+        assertThat(restTemplate.getForEntity(userRolesUrl, Role[].class).getBody())
+                .extracting(Role::getName).containsExactly("admin");
+    }
+
+    @Test
+    void addRoleToUser_whileFlushOfQueuedRemoveIsInFlight_keepsTheAcknowledgedGrant() throws Exception {
+        Role role = new Role();
+        role.setName("admin");
+        Role savedRole = roleRepository.save(role);
+
+        User john = new User();
+        john.setName("John");
+        john.setEmail("john@example.com");
+        User savedJohn = userRepository.save(john);
+        User jane = new User();
+        jane.setName("Jane");
+        jane.setEmail("jane@example.com");
+        User savedJane = userRepository.save(jane);
+        String johnsRoleUrl = usersUrl + "/" + savedJohn.getId() + "/roles/" + savedRole.getId();
+        String janesRoleUrl = usersUrl + "/" + savedJane.getId() + "/roles/" + savedRole.getId();
+        HttpEntity<Void> respondAsync = new HttpEntity<>(preferRespondAsync());
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("INSERT INTO user_roles (user_id, role_id) VALUES (" + savedJane.getId() + ", " + savedRole.getId() + ")");
+            }
+            restTemplate.exchange(janesRoleUrl, HttpMethod.POST, respondAsync, Void.class);
+            restTemplate.exchange(johnsRoleUrl, HttpMethod.POST, respondAsync, Void.class);
+            restTemplate.exchange(johnsRoleUrl, HttpMethod.DELETE, respondAsync, Void.class);
+
+            CompletableFuture<Void> flushing = CompletableFuture.runAsync(membershipWriteBehind::flush);
+            await().atMost(Duration.ofSeconds(10)).until(() -> membershipWriteBehind.pendingCount() == 0);
+            CompletableFuture<ResponseEntity<Role>> granting = CompletableFuture.supplyAsync(
+                    () -> restTemplate.postForEntity(johnsRoleUrl, null, Role.class));
+            TimeUnit.MILLISECONDS.sleep(500);
+            assertThat(granting).isNotDone();
+
+            connection.rollback();
+            flushing.get(10, TimeUnit.SECONDS);
+            assertThat(granting.get(10, TimeUnit.SECONDS).getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+
+        assertThat(restTemplate.getForEntity(johnsRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(restTemplate.getForEntity(janesRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+    }
+
+    @Test
+    void hasRole_tracksDirectBulkAndWriteBehindMembershipChanges() {
+        Role role = new Role();
+        role.setName("admin");
+        Role savedRole = roleRepository.save(role);
+
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User savedUser = userRepository.save(user);
+        String userRoleUrl = usersUrl + "/" + savedUser.getId() + "/roles/" + savedRole.getId();
+        String membersUrl = rolesUrl + "/" + savedRole.getId() + "/members";
+
+        assertThat(restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        restTemplate.postForEntity(userRoleUrl, null, Role.class);
+        assertThat(restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        restTemplate.exchange(membersUrl, HttpMethod.DELETE, new HttpEntity<>(List.of(savedUser.getId())), MembershipChangeSummary.class);
+        assertThat(restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        restTemplate.postForEntity(membersUrl, List.of(savedUser.getId(), 999L), MembershipChangeSummary.class);
+        assertThat(restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(restTemplate.getForEntity(usersUrl + "/999/roles/" + savedRole.getId(), Void.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+
+        restTemplate.exchange(userRoleUrl, HttpMethod.DELETE, new HttpEntity<>(preferRespondAsync()), Void.class);
+        assertThat(restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        membershipWriteBehind.flush();
+        assertThat(restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void hasRole_ignoresWriteBehindGrantForUserDeletedBeforeFlush() {
+        Role role = new Role();
+        role.setName("admin");
+        Role savedRole = roleRepository.save(role);
+
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User savedUser = userRepository.save(user);
+        String userRoleUrl = usersUrl + "/" + savedUser.getId() + "/roles/" + savedRole.getId();
+
+        restTemplate.exchange(userRoleUrl, HttpMethod.POST, new HttpEntity<>(preferRespondAsync()), Void.class);
+        restTemplate.delete(usersUrl + "/" + savedUser.getId());
+        membershipWriteBehind.flush();
+
+        assertThat(restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void hasRole_followsMembershipChangesRecordedByOtherNodes() {
+        Role role = new Role();
+        role.setName("admin");
+        Role savedRole = roleRepository.save(role);
+
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User savedUser = userRepository.save(user);
+        String userRoleUrl = usersUrl + "/" + savedUser.getId() + "/roles/" + savedRole.getId();
+        restTemplate.postForEntity(userRoleUrl, null, Role.class);
+        membershipIndex.rebuild();
+        await().atMost(Duration.ofSeconds(10)).until(() -> membershipIndex.size() > 0);
+
+        jdbcTemplate.update("DELETE FROM user_roles WHERE user_id = ? AND role_id = ?", savedUser.getId(), savedRole.getId());
+        assertThat(restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        jdbcTemplate.update("INSERT INTO changes (type, user_id, role_id) VALUES ('ROLE_REVOKED', ?, ?)", savedUser.getId(), savedRole.getId());
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode() == HttpStatus.NOT_FOUND);
+
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)", savedUser.getId(), savedRole.getId());
+        jdbcTemplate.update("INSERT INTO changes (type, user_id, role_id) VALUES ('ROLE_GRANTED', ?, ?)", savedUser.getId(), savedRole.getId());
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode() == HttpStatus.NO_CONTENT);
+    }
+
+    @Test
+    void addRoleToUser_withRespondAsyncAndNonExistentRole_returns404() {
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User savedUser = userRepository.save(user);
+
+        ResponseEntity<Void> response = restTemplate.exchange(usersUrl + "/" + savedUser.getId() + "/roles/999999",
+                HttpMethod.POST, new HttpEntity<>(preferRespondAsync()), Void.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(membershipWriteBehind.pendingCount()).isZero();
+    }
+
+    @Test
+    void getRolesByUserIds_returnsRolesGroupedByUserId() {
+        Role role1 = new Role();
+        role1.setName("admin");
+        Role savedRole1 = roleRepository.save(role1);
+
+        Role role2 = new Role();
+        role2.setName("user");
+        Role savedRole2 = roleRepository.save(role2);
+
+        User john = new User();
+        john.setName("John");
+        john.setEmail("john@example.com");
+        john.getRoles().add(savedRole1);
+        john.getRoles().add(savedRole2);
+        User savedJohn = userRepository.save(john);
+
+        User jane = new User();
+        jane.setName("Jane");
+        jane.setEmail("jane@example.com");
+        User savedJane = userRepository.save(jane);
+
+        ResponseEntity<Map<Long, List<Role>>> response = restTemplate.exchange(
+                usersUrl + "/roles?ids=" + savedJohn.getId() + "," + savedJane.getId() + ",999",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).containsOnlyKeys(savedJohn.getId(), savedJane.getId());
+        assertThat(response.getBody().get(savedJohn.getId())).extracting(Role::getName).containsExactlyInAnyOrder("admin", "user");
+        assertThat(response.getBody().get(savedJane.getId())).isEmpty();
+    }
+
     // US7: Remove Role from User tests
 
     @Test
@@ -470,4 +816,189 @@ class RoleControllerIntegrationTest {
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
+
+    // Role membership batch tests
+
+    @Test
+    void addMembers_withNewExistingAndUnknownUsers_returnsSummary() {
+        Role role = new Role();
+        role.setName("admin");
+        Role savedRole = roleRepository.save(role);
+
+        User john = new User();
+        john.setName("John");
+        john.setEmail("john@example.com");
+        User savedJohn = userRepository.save(john);
+
+        User jane = new User();
+        jane.setName("Jane");
+        jane.setEmail("jane@example.com");
+        jane.getRoles().add(savedRole);
+        User savedJane = userRepository.save(jane);
+
+        ResponseEntity<MembershipChangeSummary> response = restTemplate.postForEntity(
+                rolesUrl + "/" + savedRole.getId() + "/members",
+                List.of(savedJohn.getId(), savedJane.getId(), 999L, savedJohn.getId()),
+                MembershipChangeSummary.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(new MembershipChangeSummary(1, 1, 1));
+        assertThat(roleRepository.countUsersByRoleId(savedRole.getId())).isEqualTo(2);
+    }
+
+    @Test
+    void addMembers_withNonExistentRole_returns404() {
+        ResponseEntity<String> response = restTemplate.postForEntity(
+                rolesUrl + "/999/members",
+                List.of(1L),
+                String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void removeMembers_withMemberNonMemberAndUnknownUsers_returnsSummary() {
+        Role role = new Role();
+        role.setName("admin");
+        Role savedRole = roleRepository.save(role);
+
+        User john = new User();
+        john.setName("John");
+        john.setEmail("john@example.com");
+        john.getRoles().add(savedRole);
+        User savedJohn = userRepository.save(john);
+
+        User jane = new User();
+        jane.setName("Jane");
+        jane.setEmail("jane@example.com");
+        User savedJane = userRepository.save(jane);
+
+        ResponseEntity<MembershipChangeSummary> response = restTemplate.exchange(
+                rolesUrl + "/" + savedRole.getId() + "/members",
+                HttpMethod.DELETE,
+                new HttpEntity<>(List.of(savedJohn.getId(), savedJane.getId(), 999L)),
+                MembershipChangeSummary.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(new MembershipChangeSummary(1, 1, 1));
+        assertThat(roleRepository.countUsersByRoleId(savedRole.getId())).isZero();
+    }
+
+    @Test
+    void getRolesWithCounts_returnsMemberCountPerRole() {
+        Role admin = new Role();
+        admin.setName("admin");
+        Role savedAdmin = roleRepository.save(admin);
+
+        Role guest = new Role();
+        guest.setName("guest");
+        Role savedGuest = roleRepository.save(guest);
+
+        for (String name : new String[] {"John", "Jane"}) {
+            User user = new User();
+            user.setName(name);
+            user.setEmail(name.toLowerCase() + "@example.com");
+            user.getRoles().add(savedAdmin);
+            userRepository.save(user);
+        }
+
+        ResponseEntity<RoleWithMemberCount[]> response = restTemplate.getForEntity(
+                rolesUrl + "?withCounts=true", RoleWithMemberCount[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).containsExactly(
+                new RoleWithMemberCount(savedAdmin.getId(), "admin", 2),
+                new RoleWithMemberCount(savedGuest.getId(), "guest", 0));
+    }
+
+    @Test
+    void getMembers_withAfterAndLimit_returnsNextMembersInIdOrder() {
+        Role role = new Role();
+        role.setName("admin");
+        Role savedRole = roleRepository.save(role);
+
+        User first = null;
+        for (int i = 1; i <= 4; i++) {
+            User user = new User();
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            if (i != 3) {
+                user.getRoles().add(savedRole);
+            }
+            User savedUser = userRepository.save(user);
+            if (first == null) {
+                first = savedUser;
+            }
+        }
+
+        ResponseEntity<User[]> response = restTemplate.getForEntity(
+                rolesUrl + "/" + savedRole.getId() + "/members?after=" + first.getId() + "&limit=2", User[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(User::getName).containsExactly("User 2", "User 4");
+    }
+
+    @Test
+    void getMembers_withNonExistentRole_returns404() {
+        ResponseEntity<String> response = restTemplate.getForEntity(rolesUrl + "/999/members", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void membershipQueries_onLargeTables_useIndexesInsteadOfSequentialScans() {
+        jdbcTemplate.update("INSERT INTO roles (name) SELECT 'role ' || g FROM generate_series(1, 50) g");
+        jdbcTemplate.update("INSERT INTO users (name, email) SELECT 'User ' || g, 'user' || g || '@example.com' FROM generate_series(1, 20000) g");
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) SELECT u.id, r.id FROM users u JOIN roles r ON r.id % 25 = u.id % 25");
+        jdbcTemplate.execute("VACUUM ANALYZE users, roles, user_roles");
+        try {
+            Long roleId = jdbcTemplate.queryForObject("SELECT min(id) FROM roles", Long.class);
+            Long userId = jdbcTemplate.queryForObject("SELECT min(user_id) FROM user_roles WHERE role_id = ?", Long.class, roleId);
+
+            assertNoSequentialScans(SqlRecorder.record(() -> roleRepository.countUsersByRoleId(roleId)), roleId);
+            assertNoSequentialScans(SqlRecorder.record(() -> userRepository.findMembersAfter(roleId, 0L, Limit.of(100))), roleId, 0L, 100);
+            assertNoSequentialScans(SqlRecorder.record(() -> userRepository.findWithRolesByIdIn(List.of(userId))), userId);
+            assertNoSequentialScans(SqlRecorder.record(() -> transactionTemplate.executeWithoutResult(
+                    status -> roleRepository.removeMembers(roleId, List.of(userId)))), roleId, userId);
+        } finally {
+            jdbcTemplate.execute("TRUNCATE user_roles, users, roles");
+        }
+    }
+
+    private void assertNoSequentialScans(String sql, Object... parameters) {
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters));
+
+        assertThat(plan).as(sql).doesNotContain("Seq Scan on users").doesNotContain("Seq Scan on user_roles");
+    }
+
+    private HttpHeaders preferRespondAsync() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Prefer", "respond-async");
+        return headers;
+    }
+
+    public static class SqlRecorder implements StatementInspector {
+
+        private static final ThreadLocal<List<String>> statements = new ThreadLocal<>();
+
+        static String record(Runnable query) {
+            statements.set(new ArrayList<>());
+            try {
+                query.run();
+                assertThat(statements.get()).hasSize(1);
+                return statements.get().get(0);
+            } finally {
+                statements.remove();
+            }
+        }
+
+        @Override
+        public String inspect(String sql) {
+            List<String> recorded = statements.get();
+            if (recorded != null) {
+                recorded.add(sql);
+            }
+            return sql;
+        }
+    }
 }
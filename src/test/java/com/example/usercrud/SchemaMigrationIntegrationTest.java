@@ -0,0 +1,68 @@
+package com.example.usercrud;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+class SchemaMigrationIntegrationTest {
+
+    private static final String LEGACY_DATABASE = "usercrud_legacy";
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Test
+    void schemaCreatedByHibernateUpdate_isBroughtUpToDate() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + LEGACY_DATABASE);
+            statement.execute("CREATE DATABASE " + LEGACY_DATABASE);
+        }
+        String legacyUrl = "jdbc:postgresql://" + postgres.getHost() + ":" + postgres.getFirstMappedPort() + "/" + LEGACY_DATABASE;
+        try (Connection connection = DriverManager.getConnection(legacyUrl, postgres.getUsername(), postgres.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE users (
+                        id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                        name varchar(255) NOT NULL,
+                        email varchar(255) NOT NULL
+                    );
+                    CREATE TABLE roles (
+                        id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                        name varchar(255) UNIQUE
+                    );
+                    CREATE TABLE user_roles (
+                        user_id bigint NOT NULL REFERENCES users (id),
+                        role_id bigint NOT NULL REFERENCES roles (id),
+                        PRIMARY KEY (user_id, role_id)
+                    );
+                    INSERT INTO users (name, email) VALUES ('John', 'john@example.com');
+                    """);
+        }
+
+        try (ConfigurableApplicationContext context = SpringApplication.run(UserCrudApplication.class,
+                "--server.port=0",
+                "--spring.datasource.url=" + legacyUrl,
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword())) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            assertThat(jdbcTemplate.queryForList("SELECT version FROM flyway_schema_history ORDER BY installed_rank", String.class))
+                    .containsExactly("1", "2", "3", "4");
+            assertThat(jdbcTemplate.queryForObject("SELECT version FROM users WHERE email = 'john@example.com'", Long.class)).isZero();
+            assertThat(jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes WHERE schemaname = 'public'", String.class))
+                    .contains("users_lower_name_trgm_idx", "users_lower_email_key", "user_roles_role_id_user_id_idx");
+            assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM table_versions", Long.class)).isZero();
+        }
+    }
+}
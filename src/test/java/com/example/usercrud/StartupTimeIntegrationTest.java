@@ -0,0 +1,93 @@
+package com.example.usercrud;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+class StartupTimeIntegrationTest {
+
+    private static final Duration STARTUP_TIME_TARGET = Duration.parse(System.getProperty("startup.time-target", "PT20S"));
+    private static final Path JAR = Path.of(System.getProperty("startup.jar", "target/user-crud-1.0.0.jar")).toAbsolutePath();
+    private static final Pattern STARTED = Pattern.compile("Started UserCrudApplication in .* \\(process running for ([0-9.]+)\\)");
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.MINUTES)
+    void packagedJarWithAotAndCds_isReadyWithinStartupTimeTarget() throws IOException, InterruptedException {
+        String jar = JAR.getFileName().toString();
+        Path applicationDir = workDir.resolve("application");
+        run(workDir, "-Djarmode=tools", "-jar", JAR.toString(), "extract", "--destination", applicationDir.toString());
+        run(applicationDir, "-XX:ArchiveClassesAtExit=app.jsa", "-Dspring.aot.enabled=true", "-Dspring.profiles.active=prod",
+                "-Dspring.flyway.enabled=false", "-Dspring.context.exit=onRefresh", "-jar", jar);
+
+        Process application = java(applicationDir, "-XX:SharedArchiveFile=app.jsa", "-Dspring.aot.enabled=true", "-Dspring.profiles.active=prod",
+                "-jar", jar,
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword())
+                .redirectErrorStream(true)
+                .start();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(application.getInputStream(), StandardCharsets.UTF_8))) {
+            Duration timeTaken = null;
+            String line;
+            while (timeTaken == null && (line = output.readLine()) != null) {
+                Matcher matcher = STARTED.matcher(line);
+                if (matcher.find()) {
+                    timeTaken = Duration.ofMillis(Math.round(Double.parseDouble(matcher.group(1)) * 1000));
+                }
+            }
+            assertThat(timeTaken).isNotNull().isLessThan(STARTUP_TIME_TARGET);
+        } finally {
+            application.destroy();
+            application.waitFor();
+        }
+    }
+
+    private void run(Path directory, String... arguments) throws IOException, InterruptedException {
+        Path log = workDir.resolve("java.log");
+        Process process = java(directory, arguments)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        assertThat(process.waitFor()).as(() -> "exit code of java " + String.join(" ", arguments) + "\n" + readLog(log)).isZero();
+    }
+
+    private static ProcessBuilder java(Path directory, String... arguments) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of(arguments));
+        return new ProcessBuilder(command).directory(directory.toFile());
+    }
+
+    private static String readLog(Path log) {
+        try {
+            return Files.readString(log);
+        } catch (IOException e) {
+            return e.toString();
+        }
+    }
+}
@@ -1,14 +1,37 @@
 package com.example.usercrud;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -17,8 +40,10 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability(tracing = false)
 @Testcontainers
 class UserControllerIntegrationTest {
 
@@ -41,12 +66,19 @@ class UserControllerIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private String baseUrl;
 
     @BeforeEach
     void setUp() {
         baseUrl = "http://localhost:" + port + "/users";
         userRepository.deleteAll();
+        roleRepository.deleteAll();
     }
 
     @Test
@@ -84,6 +116,101 @@ class UserControllerIntegrationTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
     }
 
+    @Test
+    void importUsers_withJsonArray_createsValidRowsAndReportsInvalidOnes() {
+        String body = """
+                [{"name": "John", "email": "john@example.com"},
+                 {"name": "", "email": "nobody@example.com"},
+                 {"name": "Jane", "email": "jane@example.com"}]
+                """;
+
+        ResponseEntity<BulkImportResult> response = restTemplate.postForEntity(
+                baseUrl + "/bulk", jsonRequest(body, MediaType.APPLICATION_JSON), BulkImportResult.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().created()).isEqualTo(2);
+        assertThat(response.getBody().failed()).isEqualTo(1);
+        assertThat(response.getBody().errors()).singleElement().satisfies(error -> {
+            assertThat(error.index()).isEqualTo(1);
+            assertThat(error.messages()).containsExactly("name must not be blank");
+        });
+        assertThat(userRepository.findAll()).extracting(User::getName).containsExactlyInAnyOrder("John", "Jane");
+    }
+
+    @Test
+    void importUsers_withValueLongerThanColumn_reportsRowAndImportsTheRest() {
+        String body = """
+                {"name": "John", "email": "john@example.com"}
+                {"name": "%s", "email": "long@example.com"}
+                {"name": "Jane", "email": "jane@example.com"}
+                """.formatted("x".repeat(256));
+
+        ResponseEntity<BulkImportResult> response = restTemplate.postForEntity(
+                baseUrl + "/bulk", jsonRequest(body, MediaType.APPLICATION_NDJSON), BulkImportResult.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().created()).isEqualTo(2);
+        assertThat(response.getBody().errors()).singleElement().satisfies(error -> {
+            assertThat(error.index()).isEqualTo(1);
+            assertThat(error.messages()).containsExactly("name size must be between 0 and 255");
+        });
+        assertThat(userRepository.findAll()).extracting(User::getName).containsExactlyInAnyOrder("John", "Jane");
+    }
+
+    @Test
+    void createUser_withEmailTakenInAnotherCase_returns409() {
+        saveUser("John", "john@example.com");
+        User user = new User();
+        user.setName("Johnny");
+        user.setEmail("John@Example.com");
+
+        ResponseEntity<String> response = restTemplate.postForEntity(baseUrl, user, String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(userRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void importUsers_withTakenAndRepeatedEmails_skipsThemAndReportsTheirRows() {
+        saveUser("John", "john@example.com");
+        String body = """
+                {"name": "Johnny", "email": "JOHN@example.com"}
+                {"name": "Jane", "email": "jane@example.com"}
+                {"name": "Janet", "email": "jane@example.com"}
+                """;
+
+        ResponseEntity<BulkImportResult> response = restTemplate.postForEntity(
+                baseUrl + "/bulk", jsonRequest(body, MediaType.APPLICATION_NDJSON), BulkImportResult.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().created()).isEqualTo(1);
+        assertThat(response.getBody().failed()).isEqualTo(2);
+        assertThat(response.getBody().errors()).extracting(BulkImportResult.RowError::index).containsExactly(0, 2);
+        assertThat(response.getBody().errors()).allSatisfy(error ->
+                assertThat(error.messages()).containsExactly("email already exists"));
+        assertThat(userRepository.findAll()).extracting(User::getName).containsExactlyInAnyOrder("John", "Jane");
+    }
+
+    @Test
+    void importUsers_withNdjson_createsAllRows() {
+        String body = """
+                {"name": "John", "email": "john@example.com"}
+                {"name": "Jane", "email": "jane@example.com"}
+                """;
+
+        ResponseEntity<BulkImportResult> response = restTemplate.postForEntity(
+                baseUrl + "/bulk", jsonRequest(body, MediaType.APPLICATION_NDJSON), BulkImportResult.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().created()).isEqualTo(2);
+        assertThat(response.getBody().errors()).isEmpty();
+        assertThat(userRepository.count()).isEqualTo(2);
+    }
+
     @Test
     void getAllUsers_returnsListOfUsers() {
         User user1 = new User();
@@ -110,6 +237,168 @@ class UserControllerIntegrationTest {
         assertThat(response.getBody()).isEmpty();
     }
 
+    @Test
+    void getAllUsers_withSmileOrCborAccept_returnsBinaryRepresentationWithItsOwnETag() throws IOException {
+        saveUser("John", "john@example.com");
+        saveUser("Jane", "jane@example.com");
+
+        HttpResponse<byte[]> json = getAllUsers("application/json");
+        HttpResponse<byte[]> smile = getAllUsers("application/x-jackson-smile");
+        HttpResponse<byte[]> cbor = getAllUsers("application/cbor;q=0.9, application/json;q=0.5");
+
+        assertThat(smile.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue("application/x-jackson-smile");
+        assertThat(cbor.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue("application/cbor");
+        assertThat(smile.headers().firstValue(HttpHeaders.VARY)).hasValue(HttpHeaders.ACCEPT);
+        assertThat(new SmileMapper().readValue(smile.body(), User[].class)).extracting(User::getName).containsExactly("John", "Jane");
+        assertThat(new CBORMapper().readValue(cbor.body(), User[].class)).extracting(User::getName).containsExactly("John", "Jane");
+        assertThat(smile.body().length).isLessThan(json.body().length);
+        assertThat(List.of(json, smile, cbor)).extracting(response -> response.headers().firstValue(HttpHeaders.ETAG).orElseThrow())
+                .doesNotHaveDuplicates();
+    }
+
+    @Test
+    void getUserPageAndLookup_withSmileOrCborAccept_tagAndVaryEachRepresentation() throws IOException {
+        User saved = saveUser("John", "john@example.com");
+        String userUrl = baseUrl + "/" + saved.getId();
+
+        HttpResponse<byte[]> json = get(userUrl, "application/json");
+        HttpResponse<byte[]> smile = get(userUrl, "application/x-jackson-smile");
+        HttpResponse<byte[]> page = get(baseUrl + "?limit=10", "application/cbor");
+        HttpResponse<byte[]> lookup = get(baseUrl + "?ids=" + saved.getId(), "application/x-jackson-smile");
+
+        assertThat(json.headers().firstValue(HttpHeaders.ETAG)).hasValue("\"0\"");
+        assertThat(smile.headers().firstValue(HttpHeaders.ETAG)).hasValue("\"0-x-jackson-smile\"");
+        assertThat(smile.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue("application/x-jackson-smile");
+        assertThat(new SmileMapper().readValue(smile.body(), User.class).getName()).isEqualTo("John");
+        assertThat(page.headers().firstValue(HttpHeaders.ETAG)).hasValueSatisfying(eTag -> assertThat(eTag).startsWith("W/").endsWith("-cbor\""));
+        assertThat(page.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue("application/cbor");
+        assertThat(lookup.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValue("application/x-jackson-smile");
+        assertThat(List.of(json, smile, page, lookup)).allSatisfy(response -> assertThat(response.headers().firstValue(HttpHeaders.VARY))
+                .hasValueSatisfying(vary -> assertThat(vary.toLowerCase().split("\\s*,\\s*")).contains("accept")));
+    }
+
+    @Test
+    void negotiatedResponsesWithoutEntityTags_varyByAcceptOnce() throws IOException {
+        User saved = saveUser("John", "john@example.com");
+        Role admin = saveRole("ADMIN");
+        String host = "http://localhost:" + port;
+        long head = restTemplate.getForObject(host + "/changes/head", ChangeBatch.class).next();
+
+        List<HttpResponse<byte[]>> responses = List.of(
+                get(baseUrl + "/" + saved.getId(), "application/cbor"),
+                get(baseUrl + "/" + saved.getId() + "/roles", "application/cbor"),
+                get(baseUrl + "/roles?ids=" + saved.getId(), "application/x-jackson-smile"),
+                get(host + "/roles?withCounts=true", "application/cbor"),
+                get(host + "/roles/" + admin.getId() + "/members", "application/x-jackson-smile"),
+                get(host + "/changes?since=" + head, "application/cbor"),
+                get(host + "/changes/head", "application/json"));
+
+        assertThat(responses).allSatisfy(response -> {
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.headers().firstValue(HttpHeaders.VARY)).hasValueSatisfying(vary ->
+                    assertThat(vary.toLowerCase().split("\\s*,\\s*")).containsOnlyOnce("accept"));
+        });
+    }
+
+    @Test
+    void updateUser_withIfMatchOfAnotherRepresentation_returns412() {
+        User saved = saveUser("John", "john@example.com");
+        User update = new User();
+        update.setName("Johnny");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.parseMediaType("application/x-jackson-smile")));
+
+        headers.setIfMatch("\"0\"");
+        ResponseEntity<byte[]> stale = restTemplate.exchange(baseUrl + "/" + saved.getId(), HttpMethod.PUT, new HttpEntity<>(update, headers), byte[].class);
+        headers.setIfMatch("\"0-x-jackson-smile\"");
+        ResponseEntity<byte[]> current = restTemplate.exchange(baseUrl + "/" + saved.getId(), HttpMethod.PUT, new HttpEntity<>(update, headers), byte[].class);
+
+        assertThat(stale.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(current.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(current.getHeaders().getETag()).isEqualTo("\"1-x-jackson-smile\"");
+    }
+
+    @Test
+    void getAllUsers_withAcceptEncodingGzip_compressesLargeResponses() throws IOException, InterruptedException {
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            User user = new User();
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            batch.add(user);
+        }
+        userRepository.insertAll(batch);
+
+        HttpResponse<byte[]> response;
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            response = client.send(HttpRequest.newBuilder(URI.create(baseUrl)).header(HttpHeaders.ACCEPT_ENCODING, "gzip").build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+        }
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        try (GZIPInputStream users = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertThat(new ObjectMapper().readValue(users, User[].class)).hasSize(200);
+        }
+    }
+
+    @Test
+    void getUsersPage_withAfterAndLimit_returnsNextUsersInIdOrder() {
+        User first = null;
+        for (int i = 1; i <= 5; i++) {
+            User user = new User();
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            User savedUser = userRepository.save(user);
+            if (first == null) {
+                first = savedUser;
+            }
+        }
+
+        ResponseEntity<User[]> response = restTemplate.getForEntity(
+                baseUrl + "?after=" + first.getId() + "&limit=2", User[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(User::getName).containsExactly("User 2", "User 3");
+    }
+
+    @Test
+    void getUsersPage_withLimitAboveMaximum_returns400() {
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "?limit=1001", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getUsersPage_withNameQuery_returnsCaseInsensitiveMatches() {
+        for (String name : new String[] {"John Smith", "Jane Doe", "Johnny Walker"}) {
+            User user = new User();
+            user.setName(name);
+            user.setEmail(name.replace(" ", ".").toLowerCase() + "@example.com");
+            userRepository.save(user);
+        }
+
+        ResponseEntity<User[]> response = restTemplate.getForEntity(baseUrl + "?q=JOHN", User[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(User::getName).containsExactly("John Smith", "Johnny Walker");
+    }
+
+    @Test
+    void getUsersPage_withEmail_returnsExactMatchOnly() {
+        for (String email : new String[] {"john@example.com", "john@example.org"}) {
+            User user = new User();
+            user.setName("John");
+            user.setEmail(email);
+            userRepository.save(user);
+        }
+
+        ResponseEntity<User[]> response = restTemplate.getForEntity(baseUrl + "?email=John@Example.com", User[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(User::getEmail).containsExactly("john@example.com");
+    }
+
     @Test
     void getUserById_withExistingId_returns200WithUser() {
         User user = new User();
@@ -131,6 +420,128 @@ class UserControllerIntegrationTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
+    @Test
+    void getUsersByIds_returnsUsersInRequestedOrderAndReportsMissing() {
+        User john = saveUser("John", "john@example.com");
+        User jane = saveUser("Jane", "jane@example.com");
+
+        ResponseEntity<LookupResult<UserView>> response = restTemplate.exchange(
+                baseUrl + "?ids=" + jane.getId() + ",999," + john.getId(),
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().items()).extracting(UserView::name).containsExactly("Jane", "John");
+        assertThat(response.getBody().missing()).containsExactly(999L);
+    }
+
+    @Test
+    void lookupUsers_withPostedIds_dropsDuplicatesAndKeepsRequestedOrder() {
+        User john = saveUser("John", "john@example.com");
+        User jane = saveUser("Jane", "jane@example.com");
+
+        ResponseEntity<LookupResult<UserView>> response = restTemplate.exchange(
+                baseUrl + "/lookup",
+                HttpMethod.POST,
+                new HttpEntity<>(List.of(john.getId(), jane.getId(), john.getId(), 999L)),
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().items()).extracting(UserView::id).containsExactly(john.getId(), jane.getId());
+        assertThat(response.getBody().missing()).containsExactly(999L);
+    }
+
+    @Test
+    void lookupUsers_withEmptyList_returns400() {
+        ResponseEntity<String> response = restTemplate.exchange(
+                baseUrl + "/lookup", HttpMethod.POST, new HttpEntity<>(List.of()), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void checkRoles_returnsMembershipForEachPairInRequestOrder() {
+        User john = saveUser("John", "john@example.com");
+        User jane = saveUser("Jane", "jane@example.com");
+        Role admin = saveRole("admin");
+        Role viewer = saveRole("viewer");
+        restTemplate.postForEntity(baseUrl + "/" + john.getId() + "/roles/" + admin.getId(), null, Role.class);
+        restTemplate.postForEntity(baseUrl + "/" + jane.getId() + "/roles/" + viewer.getId(), null, Role.class);
+
+        ResponseEntity<List<Boolean>> response = restTemplate.exchange(baseUrl + "/role-checks", HttpMethod.POST,
+                new HttpEntity<>(List.of(
+                        new RoleCheck(john.getId(), admin.getId()),
+                        new RoleCheck(john.getId(), viewer.getId()),
+                        new RoleCheck(jane.getId(), viewer.getId()),
+                        new RoleCheck(999L, admin.getId()))),
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).containsExactly(true, false, true, false);
+    }
+
+    @Test
+    void hasRole_afterUserDeleted_returns404() {
+        User user = saveUser("John", "john@example.com");
+        Role role = saveRole("admin");
+        String userRoleUrl = baseUrl + "/" + user.getId() + "/roles/" + role.getId();
+        restTemplate.postForEntity(userRoleUrl, null, Role.class);
+        assertThat(restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        restTemplate.delete(baseUrl + "/" + user.getId());
+
+        assertThat(restTemplate.getForEntity(userRoleUrl, Void.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void checkRoles_withMissingRoleId_returns400() {
+        ResponseEntity<String> response = restTemplate.exchange(baseUrl + "/role-checks", HttpMethod.POST,
+                new HttpEntity<>(List.of(new RoleCheck(1L, null))), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void getUserById_withMatchingIfNoneMatch_returns304() {
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User savedUser = userRepository.save(user);
+        String userUrl = baseUrl + "/" + savedUser.getId();
+        String eTag = restTemplate.getForEntity(userUrl, User.class).getHeaders().getETag();
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                userUrl, HttpMethod.GET, new HttpEntity<>(ifNoneMatch(eTag)), String.class);
+
+        assertThat(eTag).isNotNull();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    void getAllUsers_withMatchingIfNoneMatch_returns304UntilUsersChange() {
+        String eTag = restTemplate.getForEntity(baseUrl, User[].class).getHeaders().getETag();
+
+        ResponseEntity<User[]> unchanged = restTemplate.exchange(
+                baseUrl, HttpMethod.GET, new HttpEntity<>(ifNoneMatch(eTag)), User[].class);
+
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        restTemplate.postForEntity(baseUrl, user, User.class);
+
+        ResponseEntity<User[]> changed = restTemplate.exchange(
+                baseUrl, HttpMethod.GET, new HttpEntity<>(ifNoneMatch(eTag)), User[].class);
+
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(eTag);
+        assertThat(changed.getBody()).hasSize(1);
+    }
+
     @Test
     void updateUser_withNewName_returns200WithUpdatedUser() {
         User user = new User();
@@ -175,6 +586,80 @@ class UserControllerIntegrationTest {
         assertThat(response.getBody().getEmail()).isEqualTo("newemail@example.com");
     }
 
+    @Test
+    void updateUser_withCurrentIfMatch_returns200AndNewETag() {
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User savedUser = userRepository.save(user);
+        String userUrl = baseUrl + "/" + savedUser.getId();
+        String eTag = restTemplate.getForEntity(userUrl, User.class).getHeaders().getETag();
+
+        User updateRequest = new User();
+        updateRequest.setName("Jane");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(eTag);
+
+        ResponseEntity<User> response = restTemplate.exchange(
+                userUrl, HttpMethod.PUT, new HttpEntity<>(updateRequest, headers), User.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isNotEqualTo(eTag);
+    }
+
+    @Test
+    void updateUser_withStaleIfMatch_returns412() {
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        User savedUser = userRepository.save(user);
+
+        User updateRequest = new User();
+        updateRequest.setName("Jane");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch("\"41\"");
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                baseUrl + "/" + savedUser.getId(), HttpMethod.PUT, new HttpEntity<>(updateRequest, headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(userRepository.findById(savedUser.getId())).get().extracting(User::getName).isEqualTo("John");
+    }
+
+    @Test
+    void updateUser_withEmailOfAnotherUser_returns409() {
+        saveUser("John", "john@example.com");
+        User jane = saveUser("Jane", "jane@example.com");
+        User updateRequest = new User();
+        updateRequest.setEmail("john@example.com");
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                baseUrl + "/" + jane.getId(),
+                HttpMethod.PUT,
+                new HttpEntity<>(updateRequest),
+                String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(userRepository.findById(jane.getId())).get().extracting(User::getEmail).isEqualTo("jane@example.com");
+    }
+
+    @Test
+    void updateUser_withNameOrEmailLongerThan255Characters_returns400() {
+        User john = saveUser("John", "john@example.com");
+        User longName = new User();
+        longName.setName("J".repeat(256));
+        User longEmail = new User();
+        longEmail.setEmail("j".repeat(244) + "@example.com");
+
+        ResponseEntity<String> nameResponse = restTemplate.exchange(baseUrl + "/" + john.getId(), HttpMethod.PUT, new HttpEntity<>(longName), String.class);
+        ResponseEntity<String> emailResponse = restTemplate.exchange(baseUrl + "/" + john.getId(), HttpMethod.PUT, new HttpEntity<>(longEmail), String.class);
+
+        assertThat(nameResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(emailResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(userRepository.findById(john.getId())).get()
+                .extracting(User::getName, User::getEmail).containsExactly("John", "john@example.com");
+    }
+
     @Test
     void updateUser_withNonExistentId_returns404() {
         User updateRequest = new User();
@@ -216,4 +701,174 @@ class UserControllerIntegrationTest {
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
+
+    @Test
+    void exportUsers_asNdjson_streamsOneLinePerUserWithRolesInIdOrder() {
+        User john = saveUser("John", "john@example.com");
+        User jane = saveUser("Jane", "jane@example.com");
+        Role admin = saveRole("ADMIN");
+        Role auditor = saveRole("AUDITOR");
+        restTemplate.postForEntity(baseUrl + "/" + john.getId() + "/roles/" + auditor.getId(), null, Role.class);
+        restTemplate.postForEntity(baseUrl + "/" + john.getId() + "/roles/" + admin.getId(), null, Role.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/export?format=ndjson", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().lines()).containsExactly(
+                "{\"id\":" + john.getId() + ",\"name\":\"John\",\"email\":\"john@example.com\",\"roles\":["
+                        + "{\"id\":" + admin.getId() + ",\"name\":\"ADMIN\"},{\"id\":" + auditor.getId() + ",\"name\":\"AUDITOR\"}]}",
+                "{\"id\":" + jane.getId() + ",\"name\":\"Jane\",\"email\":\"jane@example.com\",\"roles\":[]}");
+    }
+
+    @Test
+    void exportUsers_asGzippedCsv_streamsOneRowPerMembership() throws IOException, InterruptedException {
+        User john = saveUser("Doe, John", "john@example.com");
+        User jane = saveUser("Jane", "jane@example.com");
+        Role admin = saveRole("ADMIN");
+        restTemplate.postForEntity(baseUrl + "/" + john.getId() + "/roles/" + admin.getId(), null, Role.class);
+
+        HttpResponse<byte[]> response;
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/export?format=csv&gzip=true")).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+        }
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        try (GZIPInputStream csv = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertThat(new String(csv.readAllBytes(), StandardCharsets.UTF_8).lines()).containsExactly(
+                    "id,name,email,role_id,role_name",
+                    john.getId() + ",\"Doe, John\",john@example.com," + admin.getId() + ",ADMIN",
+                    jane.getId() + ",Jane,jane@example.com,,");
+        }
+    }
+
+    @Test
+    void exportUsers_withUnknownFormat_returns400() {
+        ResponseEntity<String> response = restTemplate.getForEntity(baseUrl + "/export?format=xml", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void prometheusEndpoint_exposesRequestRepositoryPoolHibernateAndCacheRegionMetrics() {
+        User user = new User();
+        user.setName("John");
+        user.setEmail("john@example.com");
+        userRepository.save(user);
+        restTemplate.getForEntity(baseUrl + "?limit=10", User[].class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "http://localhost:" + port + "/actuator/prometheus", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .contains("http_server_requests_seconds_bucket")
+                .contains("spring_data_repository_invocations_seconds_bucket")
+                .contains("spring_data_repository_rows_count{method=\"findViewsAfter\",repository=\"UserRepository\"")
+                .contains("hikaricp_connections_acquire_seconds")
+                .contains("hibernate_query_executions_total")
+                .contains("hibernate_second_level_cache_requests_total{")
+                .contains("cache_evictions_total{cache=\"com.example.usercrud.Role\"")
+                .contains("cache_gets_total{cache=\"com.example.usercrud.Role\"");
+    }
+
+    @Test
+    void addRoleToUser_evictsOnlyThatUsersCachedRoles() {
+        User john = saveUser("John", "john@example.com");
+        User jane = saveUser("Jane", "jane@example.com");
+        Role admin = saveRole("ADMIN");
+        restTemplate.getForEntity(baseUrl + "/" + john.getId() + "/roles", Role[].class);
+        restTemplate.getForEntity(baseUrl + "/" + jane.getId() + "/roles", Role[].class);
+        CacheRegionStatistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+                .getCacheRegionStatistics(User.class.getName() + ".roles");
+        long hits = statistics.getHitCount();
+
+        restTemplate.postForEntity(baseUrl + "/" + john.getId() + "/roles/" + admin.getId(), null, Role.class);
+        restTemplate.getForEntity(baseUrl + "/" + jane.getId() + "/roles", Role[].class);
+        ResponseEntity<Role[]> johnsRoles = restTemplate.getForEntity(baseUrl + "/" + john.getId() + "/roles", Role[].class);
+
+        assertThat(statistics.getHitCount()).isEqualTo(hits + 1);
+        assertThat(johnsRoles.getBody()).extracting(Role::getName).containsExactly("ADMIN");
+    }
+
+    @Test
+    void healthEndpoint_probesThePrimaryPoolWithoutCountingReplicaFallbacks() {
+        String actuatorUrl = "http://localhost:" + port + "/actuator";
+
+        assertThat(restTemplate.getForEntity(actuatorUrl + "/health", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.getForEntity(actuatorUrl + "/health", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        assertThat(restTemplate.getForObject(actuatorUrl + "/prometheus", String.class))
+                .contains("datasource_replica_fallbacks_total 0.0");
+    }
+
+    @Test
+    void cachedRolesAndMemberships_areEvictedWhenAnotherNodeChangesThem() {
+        User john = saveUser("John", "john@example.com");
+        Role admin = saveRole("ADMIN");
+        String rolesUrl = "http://localhost:" + port + "/roles/" + admin.getId();
+        restTemplate.postForEntity(baseUrl + "/" + john.getId() + "/roles/" + admin.getId(), null, Role.class);
+        assertThat(restTemplate.getForEntity(baseUrl + "/" + john.getId() + "/roles", Role[].class).getBody())
+                .extracting(Role::getName).containsExactly("ADMIN");
+        assertThat(restTemplate.getForObject(rolesUrl, Role.class).getName()).isEqualTo("ADMIN");
+
+        try (ConfigurableApplicationContext otherNode = new SpringApplicationBuilder(UserCrudApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword())) {
+            String otherNodeUrl = "http://localhost:" + otherNode.getEnvironment().getProperty("local.server.port");
+            Role renamed = new Role();
+            renamed.setName("OWNER");
+            restTemplate.put(otherNodeUrl + "/roles/" + admin.getId(), renamed);
+            restTemplate.delete(otherNodeUrl + "/users/" + john.getId() + "/roles/" + admin.getId());
+        }
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            assertThat(restTemplate.getForEntity(baseUrl + "/" + john.getId() + "/roles", Role[].class).getBody()).isEmpty();
+            assertThat(restTemplate.getForObject(rolesUrl, Role.class).getName()).isEqualTo("OWNER");
+        });
+    }
+
+    private HttpResponse<byte[]> getAllUsers(String accept) throws IOException {
+        return get(baseUrl, accept);
+    }
+
+    private HttpResponse<byte[]> get(String url, String accept) throws IOException {
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            return client.send(HttpRequest.newBuilder(URI.create(url)).header(HttpHeaders.ACCEPT, accept).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private User saveUser(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        return userRepository.save(user);
+    }
+
+    private Role saveRole(String name) {
+        Role role = new Role();
+        role.setName(name);
+        return roleRepository.save(role);
+    }
+
+    private HttpEntity<String> jsonRequest(String body, MediaType contentType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        return new HttpEntity<>(body, headers);
+    }
+
+    private HttpHeaders ifNoneMatch(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return headers;
+    }
 }